@@ -17,17 +17,30 @@
 package org.openmhealth.data.generator;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.openmhealth.data.generator.configuration.DataGenerationSettings;
+import org.openmhealth.data.generator.domain.DataPointBatch;
 import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.Population;
+import org.openmhealth.data.generator.domain.TrendVariation;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.metrics.GeneratorMetrics;
+import org.openmhealth.data.generator.metrics.RequestEvent;
+import org.openmhealth.data.generator.metrics.RequestProgress;
+import org.openmhealth.data.generator.metrics.RunMetrics;
+import org.openmhealth.data.generator.random.SplittableRandomGenerator;
 import org.openmhealth.data.generator.service.DataPointGenerator;
 import org.openmhealth.data.generator.service.DataPointWritingService;
+import org.openmhealth.data.generator.service.InstrumentedDataPointWritingService;
+import org.openmhealth.data.generator.service.PipelinedDataPointWritingService;
 import org.openmhealth.data.generator.service.TimestampedValueGroupGenerationService;
 import org.openmhealth.schema.domain.omh.DataPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -36,11 +49,19 @@ import javax.annotation.PostConstruct;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.openmhealth.data.generator.random.RandomGenerators.deriveSeed;
+import static org.openmhealth.data.generator.random.RandomGenerators.newSeed;
 
 
 /**
  * This application loads a data generation fixture from application.yml and creates data points according to that
- * fixture. The data points are then either written to the console or to a file, as configured.
+ * fixture. The data points are then either written to the console or to a file, as configured. If a population is
+ * configured, the data points of every request are generated for each user in the population.
  *
  * @author Emerson Farrugia
  */
@@ -49,6 +70,16 @@ public class Application {
 
     private static final Logger log = LoggerFactory.getLogger(Application.class);
 
+    /**
+     * The index used to derive the seed of the data point identifiers of a request from the seed of the request.
+     */
+    private static final long DATA_POINT_ID_SEED_INDEX = -1;
+
+    /**
+     * The number of requests per request thread that may be waiting to run.
+     */
+    private static final int PENDING_REQUESTS_PER_THREAD = 2;
+
     @Autowired
     private DataGenerationSettings dataGenerationSettings;
 
@@ -64,6 +95,18 @@ public class Application {
     @Autowired
     private DataPointWritingService dataPointWritingService;
 
+    @Autowired
+    private RunMetrics runMetrics;
+
+    @Value("${generation.request-threads:1}")
+    private Integer requestThreads;
+
+    @Value("${generation.write-batch-size:10000}")
+    private Integer writeBatchSize;
+
+    @Value("${generation.write-queue-capacity:16}")
+    private Integer writeQueueCapacity;
+
     private Map<String, DataPointGenerator<?>> dataPointGeneratorMap = new HashMap<>();
 
 
@@ -87,32 +130,255 @@ public class Application {
 
         setMeasureGenerationRequestDefaults();
 
-        if (!areMeasureGenerationRequestsValid()) {
+        if (!areMeasureGenerationRequestsValid() || !isPopulationValid()) {
             return;
         }
 
-        long totalWritten = 0;
+        if (requestThreads < 1 || writeBatchSize < 1) {
+            log.error("The request thread count and write batch size must both be positive.");
+            return;
+        }
 
-        for (MeasureGenerationRequest request : dataGenerationSettings.getMeasureGenerationRequests()) {
+        if (writeQueueCapacity < 0) {
+            log.error("The write queue capacity must not be negative.");
+            return;
+        }
+
+        List<MeasureGenerationRequest> requests = dataGenerationSettings.getMeasureGenerationRequests();
+
+        // the instrumented service sits beneath the pipeline, so that it measures the writer thread
+        DataPointWritingService instrumentedWritingService =
+                new InstrumentedDataPointWritingService(dataPointWritingService, runMetrics);
 
-            Iterable<TimestampedValueGroup> valueGroups = valueGroupGenerationService.generateValueGroups(request);
-            DataPointGenerator<?> dataPointGenerator = dataPointGeneratorMap.get(request.getGeneratorName());
+        // a single writer thread would serialize the writes of a service that writes concurrent batches in parallel
+        boolean pipelined = writeQueueCapacity > 0 && !dataPointWritingService.isWritingConcurrently();
 
-            Iterable<? extends DataPoint<?>> dataPoints = dataPointGenerator.generateDataPoints(valueGroups);
+        if (writeQueueCapacity > 0 && !pipelined) {
+            log.info("The writing service writes batches in parallel, so the request threads write their own batches "
+                    + "instead of queueing them for a single writer thread.");
+        }
+
+        // the writer thread of a pipelined service writes batches while the request threads generate the next ones
+        DataPointWritingService writingService = pipelined
+                ? new PipelinedDataPointWritingService(instrumentedWritingService, writeQueueCapacity)
+                : instrumentedWritingService;
 
-            long written = dataPointWritingService.writeDataPoints(dataPoints);
-            totalWritten += written;
+        Population population = dataGenerationSettings.getPopulation();
+        long userCount = population != null ? population.getUserCount() : 1;
 
-            log.info("The '{}' generator has written {} data point(s).", dataPointGenerator.getName(), written);
+        if (population != null) {
+            log.info("The data is being generated for a population of {} user(s).", userCount);
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(requestThreads,
+                new ThreadFactoryBuilder().setNameFormat("request-%d").build());
+
+        // requests are submitted as threads free up, so the number of pending requests doesn't grow with the population
+        int maximumPendingRequests = requestThreads * PENDING_REQUESTS_PER_THREAD;
+        Semaphore pendingRequests = new Semaphore(maximumPendingRequests);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        runMetrics.start(userCount * requests.size());
+
+        Throwable runFailure = null;
+
+        try {
+            for (long userNumber = 1; userNumber <= userCount && failure.get() == null; userNumber++) {
+                for (MeasureGenerationRequest request : requests) {
+
+                    MeasureGenerationRequest userRequest =
+                            population != null ? population.newUserRequest(request, userNumber) : request;
+
+                    pendingRequests.acquire();
+
+                    executorService.execute(() -> {
+                        try {
+                            generateAndWriteDataPoints(userRequest, writingService);
+                        }
+                        catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                        finally {
+                            pendingRequests.release();
+                        }
+                    });
+                }
+            }
+
+            pendingRequests.acquire(maximumPendingRequests);
+
+            if (failure.get() != null) {
+                Throwables.propagateIfPossible(failure.get(), Exception.class);
+                throw Throwables.propagate(failure.get());
+            }
+        }
+        catch (Throwable e) {
+            runFailure = e;
+            throw e;
+        }
+        finally {
+            executorService.shutdownNow();
+
+            try {
+                closeWritingService(writingService, runFailure);
+            }
+            finally {
+                runMetrics.stop();
+            }
+        }
+
+        long totalWritten = 0;
+
+        for (GeneratorMetrics metrics : runMetrics.getGeneratorMetrics()) {
+
+            log.info("The '{}' generator has written {} data point(s).", metrics.getGeneratorName(),
+                    metrics.getDataPointCount());
+            totalWritten += metrics.getDataPointCount();
         }
 
         log.info("A total of {} data point(s) have been written.", totalWritten);
+
+        runMetrics.writeReport();
     }
 
+    /**
+     * Closes the writing service, which writes any data points still queued and finishes outputs such as compressed
+     * files and shards, whether or not the run has failed.
+     *
+     * @param writingService the service to close
+     * @param runFailure the error the run has failed with, or null if it hasn't, to which an error closing the service
+     * is added as a suppressed exception
+     */
+    private void closeWritingService(DataPointWritingService writingService, Throwable runFailure) throws Exception {
+
+        try {
+            writingService.close();
+        }
+        catch (Exception e) {
+            if (runFailure == null) {
+                throw e;
+            }
+
+            // a pipelined service rethrows the error its writer thread failed with, which may be the run failure
+            if (e != runFailure) {
+                runFailure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Generates and writes the data points for a request. The data points are handed to the writing service in
+     * batches, so that requests running on different threads can generate concurrently while their writes are
+     * serialized by the writing service.
+     *
+     * <p>
+     * The time spent getting value groups is measured as sampling, and the rest of the time spent generating, apart
+     * from handing batches to the writing service, as building.
+     *
+     * @param request a request to generate measures
+     * @param writingService the service to write the data points with
+     * @return the number of data points that have been written
+     */
+    private long generateAndWriteDataPoints(MeasureGenerationRequest request, DataPointWritingService writingService)
+            throws Exception {
+
+        String generatorName = request.getGeneratorName();
+        DataPointGenerator<?> dataPointGenerator = dataPointGeneratorMap.get(generatorName);
+        GeneratorMetrics metrics = runMetrics.getGeneratorMetrics(generatorName);
+        RequestProgress progress = runMetrics.startRequest(request);
+        RequestEvent requestEvent = new RequestEvent();
+
+        // identifiers are drawn from a stream of their own, so they don't affect the values that are generated
+        SplittableRandomGenerator idRandomGenerator = request.getRandomGeneratorAlgorithm()
+                .newInstance(deriveSeed(request.getSeed(), DATA_POINT_ID_SEED_INDEX));
+
+        long startTimeInNs = System.nanoTime();
+        long samplingTimeInNs = 0;
+        long handOffTimeInNs = 0;
+        long written = 0;
+
+        requestEvent.begin();
+
+        try {
+            Iterator<TimestampedValueGroupBatch> valueGroupBatches =
+                    valueGroupGenerationService.generateValueGroupBatches(request).iterator();
+            DataPointBatch dataPointBatch = new DataPointBatch(generatorName, writeBatchSize);
+
+            while (true) {
+
+                long samplingStartTimeInNs = System.nanoTime();
+                TimestampedValueGroupBatch valueGroupBatch =
+                        valueGroupBatches.hasNext() ? valueGroupBatches.next() : null;
+                samplingTimeInNs += System.nanoTime() - samplingStartTimeInNs;
+
+                if (valueGroupBatch == null) {
+                    break;
+                }
+
+                long generated = 0;
+
+                for (DataPoint<?> dataPoint : dataPointGenerator.generateDataPoints(valueGroupBatch,
+                        request.getUserId(), idRandomGenerator)) {
+
+                    dataPointBatch.add(dataPoint);
+                    generated++;
+
+                    if (dataPointBatch.size() == writeBatchSize) {
+
+                        long handOffStartTimeInNs = System.nanoTime();
+                        long handedOff = writingService.writeDataPoints(dataPointBatch);
+                        handOffTimeInNs += System.nanoTime() - handOffStartTimeInNs;
+
+                        metrics.addDataPoints(handedOff);
+                        written += handedOff;
+                        dataPointBatch = new DataPointBatch(generatorName, writeBatchSize);
+                    }
+                }
+
+                if (valueGroupBatch.getSize() > 0) {
+                    progress.update(valueGroupBatch.getEpochSecond(valueGroupBatch.getSize() - 1), generated);
+                }
+            }
+
+            metrics.addSamplingTime(samplingTimeInNs);
+            metrics.addBuildingTime(System.nanoTime() - startTimeInNs - samplingTimeInNs - handOffTimeInNs);
+
+            if (!dataPointBatch.isEmpty()) {
+                long handedOff = writingService.writeDataPoints(dataPointBatch);
+
+                metrics.addDataPoints(handedOff);
+                written += handedOff;
+            }
+
+            writingService.flush();
+        }
+        finally {
+            runMetrics.finishRequest(progress);
+
+            if (requestEvent.shouldCommit()) {
+                requestEvent.setGeneratorName(generatorName);
+                requestEvent.setUserId(request.getUserId());
+                requestEvent.setDataPointCount(written);
+                requestEvent.commit();
+            }
+        }
+
+        log.debug("A request for the '{}' generator has written {} data point(s).", generatorName, written);
+
+        return written;
+    }
 
     private void setMeasureGenerationRequestDefaults() {
 
-        for (MeasureGenerationRequest request : dataGenerationSettings.getMeasureGenerationRequests()) {
+        if (dataGenerationSettings.getSeed() == null) {
+            dataGenerationSettings.setSeed(newSeed());
+            log.info("The data is being generated using the random seed {}.", dataGenerationSettings.getSeed());
+        }
+
+        List<MeasureGenerationRequest> requests = dataGenerationSettings.getMeasureGenerationRequests();
+
+        for (int i = 0; i < requests.size(); i++) {
+            MeasureGenerationRequest request = requests.get(i);
 
             if (request.getStartDateTime() == null) {
                 request.setStartDateTime(dataGenerationSettings.getStartDateTime());
@@ -129,6 +395,14 @@ public class Application {
             if (request.isSuppressNightTimeMeasures() == null) {
                 request.setSuppressNightTimeMeasures(dataGenerationSettings.isSuppressNightTimeMeasures());
             }
+
+            if (request.getSeed() == null) {
+                request.setSeed(deriveSeed(dataGenerationSettings.getSeed(), i));
+            }
+
+            if (request.getRandomGeneratorAlgorithm() == null) {
+                request.setRandomGeneratorAlgorithm(dataGenerationSettings.getRandomGeneratorAlgorithm());
+            }
         }
     }
 
@@ -183,4 +457,50 @@ public class Application {
 
         return true;
     }
+
+    /**
+     * @return true if the population is either absent or valid, false otherwise
+     */
+    private boolean isPopulationValid() {
+
+        Population population = dataGenerationSettings.getPopulation();
+
+        if (population == null) {
+            return true;
+        }
+
+        Set<ConstraintViolation<Population>> constraintViolations = validator.validate(population);
+
+        if (!constraintViolations.isEmpty()) {
+            log.error("The population is not valid.");
+            log.error(population.toString());
+            log.error(constraintViolations.toString());
+            return false;
+        }
+
+        Joiner joiner = Joiner.on(", ");
+
+        for (Map.Entry<String, Map<String, TrendVariation>> entry : population.getTrendVariations().entrySet()) {
+
+            DataPointGenerator<?> generator = dataPointGeneratorMap.get(entry.getKey());
+
+            if (generator == null) {
+                log.error("The data generator '{}' in the population trend variations doesn't exist.", entry.getKey());
+                log.error("The allowed data generators are: {}", joiner.join(dataPointGeneratorMap.keySet()));
+                return false;
+            }
+
+            Set<String> supportedTrendKeys = generator.getSupportedValueGroupKeys();
+
+            if (!supportedTrendKeys.containsAll(entry.getValue().keySet())) {
+                log.warn("The population trend variations of generator '{}' specify unsupported trend keys.",
+                        generator.getName());
+                log.warn("The generator supports the following keys: {}.", joiner.join(supportedTrendKeys));
+                log.warn("The following keys are being ignored: {}.",
+                        joiner.join(Sets.difference(entry.getValue().keySet(), supportedTrendKeys)));
+            }
+        }
+
+        return true;
+    }
 }
\ No newline at end of file
@@ -17,6 +17,8 @@
 package org.openmhealth.data.generator.configuration;
 
 import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
+import org.openmhealth.data.generator.domain.Population;
+import org.openmhealth.data.generator.random.RandomGeneratorAlgorithm;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -26,6 +28,8 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.openmhealth.data.generator.random.RandomGeneratorAlgorithm.SPLITMIX64;
+
 
 /**
  * @author Emerson Farrugia
@@ -38,7 +42,10 @@ public class DataGenerationSettings {
     private OffsetDateTime endDateTime = OffsetDateTime.of(2015, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
     private Duration meanInterPointDuration = Duration.ofHours(24);
     private Boolean suppressNightTimeMeasures = false;
+    private Long seed;
+    private RandomGeneratorAlgorithm randomGeneratorAlgorithm = SPLITMIX64;
     private List<MeasureGenerationRequest> measureGenerationRequests = new ArrayList<>();
+    private Population population;
 
     public OffsetDateTime getStartDateTime() {
         return startDateTime;
@@ -72,6 +79,25 @@ public class DataGenerationSettings {
         this.suppressNightTimeMeasures = suppressNightTimeMeasures;
     }
 
+    /**
+     * @return the seed from which the seeds of requests are derived, or null if a random seed should be used
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public RandomGeneratorAlgorithm getRandomGeneratorAlgorithm() {
+        return randomGeneratorAlgorithm;
+    }
+
+    public void setRandomGeneratorAlgorithm(RandomGeneratorAlgorithm randomGeneratorAlgorithm) {
+        this.randomGeneratorAlgorithm = randomGeneratorAlgorithm;
+    }
+
     public List<MeasureGenerationRequest> getMeasureGenerationRequests() {
         return measureGenerationRequests;
     }
@@ -79,4 +105,16 @@ public class DataGenerationSettings {
     public void setMeasureGenerationRequests(List<MeasureGenerationRequest> measureGenerationRequests) {
         this.measureGenerationRequests = measureGenerationRequests;
     }
+
+    /**
+     * @return the population to generate the measures of every request for, or null if the measures should be
+     * generated for the configured user only
+     */
+    public Population getPopulation() {
+        return population;
+    }
+
+    public void setPopulation(Population population) {
+        this.population = population;
+    }
 }
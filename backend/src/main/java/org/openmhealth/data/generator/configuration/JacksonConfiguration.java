@@ -17,6 +17,7 @@
 package org.openmhealth.data.generator.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openmhealth.data.generator.serializer.DataPointSerializerModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -28,10 +29,16 @@ import org.springframework.context.annotation.Configuration;
 public class JacksonConfiguration {
 
     /**
-     * @return an {@link ObjectMapper} that matches schema conventions
+     * @return an {@link ObjectMapper} that matches schema conventions, and serializes data points using hand-written
+     * serializers
      */
     @Bean
     public ObjectMapper objectMapper() {
-        return org.openmhealth.schema.configuration.JacksonConfiguration.newObjectMapper();
+
+        ObjectMapper objectMapper = org.openmhealth.schema.configuration.JacksonConfiguration.newObjectMapper();
+
+        objectMapper.registerModule(new DataPointSerializerModule());
+
+        return objectMapper;
     }
 }
@@ -16,10 +16,13 @@
 
 package org.openmhealth.data.generator.domain;
 
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.random.BlockVariateGenerator;
+import org.openmhealth.data.generator.random.RandomGenerators;
+import org.openmhealth.data.generator.random.TruncatedNormalSampler;
+
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
-import java.security.SecureRandom;
-import java.util.Random;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -27,15 +30,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A random variable that models normally-distributed real values. If limits are specified, returned values will
- * fall between the specified bounds.
+ * fall between the specified bounds, following the normal distribution truncated to those bounds.
  *
  * @author Emerson Farrugia
  */
 // TODO refactor this into a container object that wraps a variable and a trend
 public class BoundedRandomVariable {
 
-    private static final Random prng = new SecureRandom();
-
     private Double variance = 0.0;
     private Double standardDeviation = 0.0;
     private Double minimumValue;
@@ -123,23 +124,38 @@ public class BoundedRandomVariable {
 
     /**
      * @param mean the mean of the random variable
-     * @return the next value generated by the random variable
+     * @return the next value generated by the random variable, drawn from an unseeded generator
      */
     public Double nextValue(Double mean) {
+        return nextValue(mean, RandomGenerators.current());
+    }
 
-        Double nextValue;
+    /**
+     * @param mean the mean of the random variable
+     * @param randomGenerator the random number generator to draw from, ideally a {@link BlockVariateGenerator}
+     * @return the next value generated by the random variable
+     */
+    public double nextValue(double mean, RandomGenerator randomGenerator) {
 
-        do {
-            nextValue = prng.nextGaussian() * standardDeviation + mean;
+        // sampling the truncated distribution directly avoids rejecting values when the mean is near or past a bound
+        return TruncatedNormalSampler.sample(randomGenerator, mean, standardDeviation, getLowerBound(),
+                getUpperBound());
+    }
 
-            if ((minimumValue == null || nextValue >= minimumValue) &&
-                    (maximumValue == null || nextValue <= maximumValue)) {
-                break;
-            }
-        }
-        while (true);
+    /**
+     * @param mean the mean of the random variable
+     * @return the probability that an unbounded value with the specified mean falls between the bounds
+     */
+    public double getBoundedProbabilityMass(Double mean) {
+        return TruncatedNormalSampler.getProbabilityMass(mean, standardDeviation, getLowerBound(), getUpperBound());
+    }
+
+    private double getLowerBound() {
+        return minimumValue != null ? minimumValue : Double.NEGATIVE_INFINITY;
+    }
 
-        return nextValue;
+    private double getUpperBound() {
+        return maximumValue != null ? maximumValue : Double.POSITIVE_INFINITY;
     }
 
     @Override
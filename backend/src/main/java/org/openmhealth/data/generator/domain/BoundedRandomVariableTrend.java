@@ -16,6 +16,11 @@
 
 package org.openmhealth.data.generator.domain;
 
+import org.apache.commons.math3.random.RandomGenerator;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -32,9 +37,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 // trend types (linear, polynomial, spline, etc.) with multiple sample points instead of just start and end
 public class BoundedRandomVariableTrend {
 
+    /**
+     * The smallest probability that a value along the trend falls between the bounds of its variable. Trends whose
+     * bounds hold less than this are almost certainly misconfigured, since nearly all their values would be pinned to
+     * a bound.
+     */
+    public static final double MINIMUM_BOUNDED_PROBABILITY_MASS = 1e-6;
+
     private BoundedRandomVariable variable = new BoundedRandomVariable();
     private Double startValue;
     private Double endValue;
+    private Long seed;
+    private Integer decimalPlaces;
 
     public BoundedRandomVariableTrend() {
     }
@@ -50,6 +64,22 @@ public class BoundedRandomVariableTrend {
         this.endValue = endValue;
     }
 
+    /**
+     * Creates a copy of a trend, which shares the variable of the trend.
+     *
+     * @param trend the trend to copy
+     */
+    public BoundedRandomVariableTrend(BoundedRandomVariableTrend trend) {
+
+        checkNotNull(trend);
+
+        this.variable = trend.variable;
+        this.startValue = trend.startValue;
+        this.endValue = trend.endValue;
+        this.seed = trend.seed;
+        this.decimalPlaces = trend.decimalPlaces;
+    }
+
     @NotNull
     public BoundedRandomVariable getVariable() {
         return variable;
@@ -89,6 +119,47 @@ public class BoundedRandomVariableTrend {
         this.endValue = endValue;
     }
 
+    /**
+     * @return the seed of the random number generator used by this trend, or null if the trend should draw from the
+     * generator of its request
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the number of decimal places the values of this trend are rounded to, or null if the decimal places of
+     * its request should be used
+     */
+    @Min(0)
+    @Max(Decimals.MAXIMUM_DECIMAL_PLACES)
+    public Integer getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    public void setDecimalPlaces(Integer decimalPlaces) {
+        this.decimalPlaces = decimalPlaces;
+    }
+
+    /**
+     * @return true if the bounds of the variable hold enough probability mass all along the trend, false otherwise
+     */
+    @AssertTrue(message = "the minimum and maximum values hold almost none of the values along the trend")
+    public boolean isBoundedProbabilityMassSufficient() {
+
+        if (startValue == null || endValue == null) {
+            return true;
+        }
+
+        // the probability mass is log-concave in the mean, so along a linear trend it's smallest at an end
+        return variable.getBoundedProbabilityMass(startValue) >= MINIMUM_BOUNDED_PROBABILITY_MASS &&
+                variable.getBoundedProbabilityMass(endValue) >= MINIMUM_BOUNDED_PROBABILITY_MASS;
+    }
+
     /**
      * @param fraction a fraction of the range between the start value and the end value
      * @return the linear interpolation of the value at that fraction
@@ -104,7 +175,7 @@ public class BoundedRandomVariableTrend {
     /**
      * @param fraction a fraction of the range between the start value and the end value
      * @return a value generated by the bounded random variable when its mean is set to the value of the trend at the
-     * given fraction
+     * given fraction, drawn from an unseeded generator
      */
     public Double nextValue(Double fraction) {
 
@@ -112,6 +183,21 @@ public class BoundedRandomVariableTrend {
         return variable.nextValue(mean);
     }
 
+    /**
+     * @param fraction a fraction of the range between the start value and the end value
+     * @param randomGenerator the random number generator to draw from
+     * @return a value generated by the bounded random variable when its mean is set to the value of the trend at the
+     * given fraction
+     */
+    public double nextValue(double fraction, RandomGenerator randomGenerator) {
+
+        checkArgument(fraction >= 0);
+        checkArgument(fraction <= 1);
+
+        double mean = startValue + (endValue - startValue) * fraction;
+        return variable.nextValue(mean, randomGenerator);
+    }
+
     // TODO remove these setters on a refactor, currently needed by SnakeYaml to support flat structure
     public void setStandardDeviation(Double standardDeviation) {
         variable.setStandardDeviation(standardDeviation);
@@ -133,6 +219,8 @@ public class BoundedRandomVariableTrend {
         sb.append("variable=").append(variable);
         sb.append(", startValue=").append(startValue);
         sb.append(", endValue=").append(endValue);
+        sb.append(", seed=").append(seed);
+        sb.append(", decimalPlaces=").append(decimalPlaces);
         sb.append('}');
 
         return sb.toString();
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import java.util.ArrayList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A batch of data points created by a single generator, handed to a writing service in one call. The name of the
+ * generator lets the writing service attribute its work to that generator.
+ *
+ * @author Emerson Farrugia
+ */
+public class DataPointBatch extends ArrayList<DataPoint<?>> {
+
+    private final String generatorName;
+
+
+    /**
+     * @param generatorName the name of the generator that created the data points
+     * @param initialCapacity the number of data points to allocate space for
+     */
+    public DataPointBatch(String generatorName, int initialCapacity) {
+
+        super(initialCapacity);
+
+        checkNotNull(generatorName);
+        this.generatorName = generatorName;
+    }
+
+    public String getGeneratorName() {
+        return generatorName;
+    }
+}
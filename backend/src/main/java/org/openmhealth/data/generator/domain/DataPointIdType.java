@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.random.Uuids;
+
+import java.time.OffsetDateTime;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The types of identifier that can be assigned to data points.
+ *
+ * @author Emerson Farrugia
+ */
+public enum DataPointIdType {
+
+    /**
+     * Version 4 UUIDs, whose bits are all random.
+     */
+    RANDOM {
+        @Override
+        public String newId(OffsetDateTime timestamp, RandomGenerator randomGenerator) {
+            return Uuids.newRandomUuid(randomGenerator);
+        }
+    },
+
+    /**
+     * Version 7 UUIDs, which start with the timestamp of the data point in milliseconds. Their order follows the
+     * order of the timestamps, which keeps inserts into an index on the identifier local. A version 7 timestamp can't
+     * precede the epoch, so data points before 1970 share the timestamp of the epoch, and sort before later data
+     * points but in random order among themselves. The same applies to data points after the year 10889.
+     */
+    TIME_ORDERED {
+        @Override
+        public String newId(OffsetDateTime timestamp, RandomGenerator randomGenerator) {
+
+            long epochMilli = timestamp.toInstant().toEpochMilli();
+
+            return Uuids.newTimeOrderedUuid(
+                    Math.min(Math.max(epochMilli, 0), Uuids.MAXIMUM_TIME_ORDERED_EPOCH_MILLI), randomGenerator);
+        }
+    };
+
+    /**
+     * @param timestamp the timestamp of the data point
+     * @param randomGenerator the random number generator to draw from
+     * @return a new identifier
+     */
+    public abstract String newId(OffsetDateTime timestamp, RandomGenerator randomGenerator);
+
+    /**
+     * @param name a name in the form used in configuration files, e.g. "time-ordered"
+     * @return the corresponding type
+     */
+    public static DataPointIdType forName(String name) {
+
+        checkNotNull(name);
+
+        String constantName = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+
+        for (DataPointIdType idType : values()) {
+            if (idType.name().equals(constantName)) {
+                return idType;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("The data point identifier type '%s' isn't supported.", name));
+    }
+}
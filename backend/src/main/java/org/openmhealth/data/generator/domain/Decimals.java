@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+
+/**
+ * A utility class for rounding generated values to a number of decimal places, and for converting them to decimals
+ * without formatting and parsing them as strings the way {@link BigDecimal#valueOf(double)} does.
+ *
+ * <p>
+ * A rounded value is kept as the double nearest to its decimal, so it's printed with no more digits than its decimal
+ * places. Its decimal is then built from the value scaled to a long, i.e. its unscaled value, which involves no search
+ * for the shortest representation of the double. Values are rounded half up in the sense of
+ * {@link RoundingMode#HALF_UP}, i.e. ties are rounded away from zero, including negative ones.
+ *
+ * @author Emerson Farrugia
+ */
+public final class Decimals {
+
+    /**
+     * The largest number of decimal places values can be rounded to.
+     */
+    public static final int MAXIMUM_DECIMAL_PLACES = 9;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    // scaled values below this magnitude are integers a double holds exactly, so they can be rounded and divided back
+    private static final double MAXIMUM_EXACT_SCALED_VALUE = 1L << 53;
+
+
+    private Decimals() {
+    }
+
+    /**
+     * @param value a value
+     * @param decimalPlaces the number of decimal places to round to
+     * @return the double nearest to the value rounded half up to the specified number of decimal places, or the value
+     * itself if it's too large in magnitude to have that many decimal places
+     */
+    public static double round(double value, int decimalPlaces) {
+
+        checkDecimalPlaces(decimalPlaces);
+
+        double scaledValue = value * POWERS_OF_TEN[decimalPlaces];
+
+        if (!(Math.abs(scaledValue) < MAXIMUM_EXACT_SCALED_VALUE)) {
+            return value;
+        }
+
+        // the division is correctly rounded, so this is the double nearest to the decimal
+        return roundHalfUp(scaledValue) / POWERS_OF_TEN[decimalPlaces];
+    }
+
+    /**
+     * @param value a value between the specified bounds
+     * @param decimalPlaces the number of decimal places to round to
+     * @param minimumValue the lower bound of the rounded value
+     * @param maximumValue the upper bound of the rounded value
+     * @return the double nearest to the value rounded half up to the specified number of decimal places, or rounded
+     * towards the inside of the bounds if rounding half up would cross one. If the bounds are closer together than a
+     * decimal place, the value may be rounded past a bound regardless.
+     */
+    public static double round(double value, int decimalPlaces, double minimumValue, double maximumValue) {
+
+        double roundedValue = round(value, decimalPlaces);
+
+        if (roundedValue > maximumValue) {
+
+            double roundedDownValue = Math.floor(value * POWERS_OF_TEN[decimalPlaces]) / POWERS_OF_TEN[decimalPlaces];
+
+            if (roundedDownValue >= minimumValue) {
+                return roundedDownValue;
+            }
+        }
+        else if (roundedValue < minimumValue) {
+
+            double roundedUpValue = Math.ceil(value * POWERS_OF_TEN[decimalPlaces]) / POWERS_OF_TEN[decimalPlaces];
+
+            if (roundedUpValue <= maximumValue) {
+                return roundedUpValue;
+            }
+        }
+
+        return roundedValue;
+    }
+
+    /**
+     * @param value a value
+     * @param decimalPlaces the number of decimal places of the decimal
+     * @return the value rounded half up to a decimal with the specified number of decimal places
+     */
+    public static BigDecimal toBigDecimal(double value, int decimalPlaces) {
+
+        checkDecimalPlaces(decimalPlaces);
+
+        double scaledValue = value * POWERS_OF_TEN[decimalPlaces];
+
+        if (!(Math.abs(scaledValue) < MAXIMUM_EXACT_SCALED_VALUE)) {
+            return BigDecimal.valueOf(value).setScale(decimalPlaces, RoundingMode.HALF_UP);
+        }
+
+        return BigDecimal.valueOf(roundHalfUp(scaledValue), decimalPlaces);
+    }
+
+    /**
+     * @param scaledValue a value smaller in magnitude than {@link #MAXIMUM_EXACT_SCALED_VALUE}
+     * @return the value rounded to the nearest integer, with ties rounded away from zero like
+     * {@link RoundingMode#HALF_UP}, unlike {@link Math#round(double)} which rounds them towards positive infinity
+     */
+    private static long roundHalfUp(double scaledValue) {
+
+        double magnitude = Math.abs(scaledValue);
+        double roundedMagnitude = Math.floor(magnitude);
+
+        // the fraction is exact, whereas adding one half to the magnitude can round up values just below a tie
+        if (magnitude - roundedMagnitude >= 0.5) {
+            roundedMagnitude++;
+        }
+
+        return (long) Math.copySign(roundedMagnitude, scaledValue);
+    }
+
+    private static void checkDecimalPlaces(int decimalPlaces) {
+
+        checkArgument(decimalPlaces >= 0 && decimalPlaces <= MAXIMUM_DECIMAL_PLACES,
+                "The number of decimal places must be between 0 and %s.", MAXIMUM_DECIMAL_PLACES);
+    }
+}
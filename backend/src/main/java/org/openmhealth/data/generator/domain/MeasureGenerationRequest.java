@@ -16,13 +16,20 @@
 
 package org.openmhealth.data.generator.domain;
 
+import org.openmhealth.data.generator.random.RandomGeneratorAlgorithm;
+
 import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 
 /**
  * A request to generate measures.
@@ -36,7 +43,36 @@ public class MeasureGenerationRequest {
     private OffsetDateTime endDateTime;
     private Duration meanInterPointDuration;
     private Boolean suppressNightTimeMeasures;
+    private Long seed;
+    private RandomGeneratorAlgorithm randomGeneratorAlgorithm;
+    private Integer decimalPlaces;
     private Map<String, BoundedRandomVariableTrend> trends = new HashMap<>();
+    private String userId;
+
+
+    public MeasureGenerationRequest() {
+    }
+
+    /**
+     * Creates a copy of a request, which shares the trends of the request.
+     *
+     * @param request the request to copy
+     */
+    public MeasureGenerationRequest(MeasureGenerationRequest request) {
+
+        checkNotNull(request);
+
+        this.generatorName = request.generatorName;
+        this.startDateTime = request.startDateTime;
+        this.endDateTime = request.endDateTime;
+        this.meanInterPointDuration = request.meanInterPointDuration;
+        this.suppressNightTimeMeasures = request.suppressNightTimeMeasures;
+        this.seed = request.seed;
+        this.randomGeneratorAlgorithm = request.randomGeneratorAlgorithm;
+        this.decimalPlaces = request.decimalPlaces;
+        this.trends = new HashMap<>(request.trends);
+        this.userId = request.userId;
+    }
 
     /**
      * @return the name of the measure generator to use
@@ -95,6 +131,16 @@ public class MeasureGenerationRequest {
         this.meanInterPointDuration = meanInterPointDuration;
     }
 
+    /**
+     * @return true if the mean inter-point duration is at least a second, false otherwise
+     */
+    @AssertTrue(message = "the mean inter-point duration must be at least one second")
+    public boolean isMeanInterPointDurationSupported() {
+
+        // timestamps are generated in whole seconds, so a shorter mean would never advance them
+        return meanInterPointDuration == null || meanInterPointDuration.getSeconds() >= 1;
+    }
+
     /**
      * @return true if measures having effective time frames at night should be suppressed, or false otherwise
      */
@@ -107,6 +153,54 @@ public class MeasureGenerationRequest {
         this.suppressNightTimeMeasures = suppressNightTimeMeasures;
     }
 
+    /**
+     * @return the seed of the random number generator, or null if a random seed should be used. A request generates
+     * the same measures each time it's run with the same seed.
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the algorithm of the random number generator, or null if the default algorithm should be used
+     */
+    public RandomGeneratorAlgorithm getRandomGeneratorAlgorithm() {
+        return randomGeneratorAlgorithm;
+    }
+
+    public void setRandomGeneratorAlgorithm(RandomGeneratorAlgorithm randomGeneratorAlgorithm) {
+        this.randomGeneratorAlgorithm = randomGeneratorAlgorithm;
+    }
+
+    /**
+     * @return the number of decimal places the values of the trends are rounded to, unless a trend sets its own, or
+     * null if values aren't rounded
+     */
+    @Min(0)
+    @Max(Decimals.MAXIMUM_DECIMAL_PLACES)
+    public Integer getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    public void setDecimalPlaces(Integer decimalPlaces) {
+        this.decimalPlaces = decimalPlaces;
+    }
+
+    /**
+     * @param key a trend key
+     * @return the number of decimal places the values of the trend are rounded to, or null if they aren't rounded
+     */
+    public Integer getDecimalPlaces(String key) {
+
+        BoundedRandomVariableTrend trend = trends.get(key);
+
+        return trend != null && trend.getDecimalPlaces() != null ? trend.getDecimalPlaces() : decimalPlaces;
+    }
+
     /**
      * @return a map of trends to be generated
      */
@@ -124,6 +218,17 @@ public class MeasureGenerationRequest {
         this.trends.put(key, trend);
     }
 
+    /**
+     * @return the user to associate the measures with, or null if the configured user should be used
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
     @Override
     public String toString() {
 
@@ -134,7 +239,11 @@ public class MeasureGenerationRequest {
         sb.append(", endDateTime=").append(endDateTime);
         sb.append(", meanInterPointDuration=").append(meanInterPointDuration);
         sb.append(", suppressNightTimeMeasures=").append(suppressNightTimeMeasures);
+        sb.append(", seed=").append(seed);
+        sb.append(", randomGeneratorAlgorithm=").append(randomGeneratorAlgorithm);
+        sb.append(", decimalPlaces=").append(decimalPlaces);
         sb.append(", trends=").append(trends);
+        sb.append(", userId='").append(userId).append('\'');
         sb.append('}');
 
         return sb.toString();
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.random.RandomGeneratorAlgorithm;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.openmhealth.data.generator.random.RandomGeneratorAlgorithm.SPLITMIX64;
+import static org.openmhealth.data.generator.random.RandomGenerators.deriveSeed;
+
+
+/**
+ * A synthetic population of users, each of whom gets the data of every measure generation request. The users are
+ * numbered from 1, and each user's requests are derived from the configured requests, with seeds of their own and
+ * trends that vary from user to user as specified by {@link TrendVariation}s.
+ *
+ * @author Emerson Farrugia
+ */
+public class Population {
+
+    /**
+     * The index used to derive the seed of the trend variations of a user's request from the seed of the request.
+     */
+    public static final long TREND_VARIATION_SEED_INDEX = -2;
+
+    private Long userCount;
+    private String userIdPattern = "user-%d";
+    private Map<String, Map<String, TrendVariation>> trendVariations = new HashMap<>();
+
+    /**
+     * @return the number of users in the population
+     */
+    @NotNull
+    @Min(1)
+    public Long getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(Long userCount) {
+        this.userCount = userCount;
+    }
+
+    /**
+     * @return the pattern of the identifiers of the users, formatted with the number of the user, e.g. "user-%06d"
+     */
+    @NotNull
+    public String getUserIdPattern() {
+        return userIdPattern;
+    }
+
+    public void setUserIdPattern(String userIdPattern) {
+        this.userIdPattern = userIdPattern;
+    }
+
+    /**
+     * @return a map of the variations of trends across users, by generator name and then by trend key
+     */
+    @Valid
+    @NotNull
+    public Map<String, Map<String, TrendVariation>> getTrendVariations() {
+        return trendVariations;
+    }
+
+    public void setTrendVariations(Map<String, Map<String, TrendVariation>> trendVariations) {
+        this.trendVariations = trendVariations;
+    }
+
+    /**
+     * @param userNumber the number of a user, starting from 1
+     * @return the identifier of the user
+     */
+    public String getUserId(long userNumber) {
+        return String.format(userIdPattern, userNumber);
+    }
+
+    /**
+     * @param request a seeded measure generation request
+     * @param userNumber the number of a user, starting from 1
+     * @return the request for the specified user. Its seed is derived from the seed of the request and the number of
+     * the user, so a user gets the same data however many users are generated and on however many threads.
+     */
+    public MeasureGenerationRequest newUserRequest(MeasureGenerationRequest request, long userNumber) {
+
+        checkNotNull(request);
+        checkArgument(request.getSeed() != null);
+        checkArgument(userNumber >= 1);
+
+        MeasureGenerationRequest userRequest = new MeasureGenerationRequest(request);
+
+        userRequest.setUserId(getUserId(userNumber));
+        userRequest.setSeed(deriveSeed(request.getSeed(), userNumber));
+
+        RandomGeneratorAlgorithm algorithm = request.getRandomGeneratorAlgorithm() != null
+                ? request.getRandomGeneratorAlgorithm()
+                : SPLITMIX64;
+
+        RandomGenerator randomGenerator =
+                algorithm.newInstance(deriveSeed(userRequest.getSeed(), TREND_VARIATION_SEED_INDEX));
+
+        Map<String, TrendVariation> generatorTrendVariations = trendVariations.get(request.getGeneratorName());
+        Map<String, BoundedRandomVariableTrend> userTrends = new HashMap<>();
+
+        for (Map.Entry<String, BoundedRandomVariableTrend> trendEntry : request.getTrends().entrySet()) {
+
+            TrendVariation trendVariation =
+                    generatorTrendVariations != null ? generatorTrendVariations.get(trendEntry.getKey()) : null;
+
+            BoundedRandomVariableTrend userTrend = trendVariation != null
+                    ? trendVariation.newTrend(trendEntry.getValue(), randomGenerator)
+                    : new BoundedRandomVariableTrend(trendEntry.getValue());
+
+            // a seeded trend stays independent of the other trends, but differs from user to user
+            if (userTrend.getSeed() != null) {
+                userTrend.setSeed(deriveSeed(userTrend.getSeed(), userNumber));
+            }
+
+            userTrends.put(trendEntry.getKey(), userTrend);
+        }
+
+        userRequest.setTrends(userTrends);
+
+        return userRequest;
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder("Population{");
+
+        sb.append("userCount=").append(userCount);
+        sb.append(", userIdPattern='").append(userIdPattern).append('\'');
+        sb.append(", trendVariations=").append(trendVariations);
+        sb.append('}');
+
+        return sb.toString();
+    }
+}
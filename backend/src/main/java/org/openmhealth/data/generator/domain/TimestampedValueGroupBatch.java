@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A batch of value groups stored by column. The timestamps are kept as epoch seconds sharing a single offset and
+ * nano-of-second, and each key has a column of primitive values with one value per row. Consumers should resolve
+ * the keys they need to columns once per batch and read primitives from then on. A column may have a number of decimal
+ * places its values are rounded to, which determines the scale of the decimals they're converted to.
+ *
+ * @author Emerson Farrugia
+ */
+public class TimestampedValueGroupBatch {
+
+    private final List<String> keys;
+    private final ZoneOffset offset;
+    private final int nanoOfSecond;
+    private long[] epochSeconds;
+    private final double[][] columns;
+    private final Integer[] decimalPlaces;
+    private int size = 0;
+
+
+    /**
+     * @param keys the keys of the columns, in column order
+     * @param offset the offset common to the timestamps in this batch
+     * @param nanoOfSecond the nano-of-second common to the timestamps in this batch
+     * @param initialCapacity the number of rows to allocate space for
+     */
+    public TimestampedValueGroupBatch(List<String> keys, ZoneOffset offset, int nanoOfSecond, int initialCapacity) {
+
+        checkNotNull(keys);
+        checkNotNull(offset);
+        checkArgument(nanoOfSecond >= 0 && nanoOfSecond < 1_000_000_000);
+        checkArgument(initialCapacity >= 0);
+
+        this.keys = new ArrayList<>(keys);
+        this.offset = offset;
+        this.nanoOfSecond = nanoOfSecond;
+        this.epochSeconds = new long[initialCapacity];
+        this.columns = new double[keys.size()][initialCapacity];
+        this.decimalPlaces = new Integer[keys.size()];
+    }
+
+    /**
+     * @param valueGroup a value group
+     * @return a batch containing the single specified value group, with a column for each of its non-null values
+     */
+    public static TimestampedValueGroupBatch of(TimestampedValueGroup valueGroup) {
+
+        checkNotNull(valueGroup);
+        checkNotNull(valueGroup.getTimestamp());
+
+        List<String> keys = new ArrayList<>();
+
+        for (Map.Entry<String, Double> entry : valueGroup.getValues().entrySet()) {
+            if (entry.getValue() != null) {
+                keys.add(entry.getKey());
+            }
+        }
+
+        OffsetDateTime timestamp = valueGroup.getTimestamp();
+        TimestampedValueGroupBatch batch =
+                new TimestampedValueGroupBatch(keys, timestamp.getOffset(), timestamp.getNano(), 1);
+
+        int row = batch.addRow(timestamp.toEpochSecond());
+
+        for (int column = 0; column < keys.size(); column++) {
+            batch.setValue(row, column, valueGroup.getValue(keys.get(column)));
+        }
+
+        return batch;
+    }
+
+    /**
+     * @return the number of rows in this batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the keys of the columns, in column order
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @param key a key
+     * @return the index of the column holding values for the key, or -1 if there is no such column
+     */
+    public int getColumnIndex(String key) {
+        return keys.indexOf(key);
+    }
+
+    /**
+     * @param key a key
+     * @return the values for the key, indexed by row, or null if there is no such column. The array may be longer
+     * than the batch, and is only valid until the next row is added.
+     */
+    public double[] getColumn(String key) {
+
+        int columnIndex = getColumnIndex(key);
+
+        return columnIndex >= 0 ? columns[columnIndex] : null;
+    }
+
+    /**
+     * @param key a key
+     * @return the decimals of the values for the key, by row index, or null if there is no such column. The values are
+     * converted with the decimal places of the column if it has any, and as {@link BigDecimal#valueOf(double)} does
+     * otherwise. The function is only valid until the next row is added.
+     */
+    public IntFunction<BigDecimal> getDecimalColumn(String key) {
+
+        int columnIndex = getColumnIndex(key);
+
+        if (columnIndex < 0) {
+            return null;
+        }
+
+        double[] column = columns[columnIndex];
+        Integer columnDecimalPlaces = decimalPlaces[columnIndex];
+
+        if (columnDecimalPlaces == null) {
+            return row -> BigDecimal.valueOf(column[row]);
+        }
+
+        int scale = columnDecimalPlaces;
+
+        return row -> Decimals.toBigDecimal(column[row], scale);
+    }
+
+    /**
+     * @param columnIndex a column index
+     * @return the number of decimal places the values in the column are rounded to, or null if they aren't rounded
+     */
+    public Integer getDecimalPlaces(int columnIndex) {
+
+        checkElementIndex(columnIndex, columns.length);
+
+        return decimalPlaces[columnIndex];
+    }
+
+    /**
+     * @param columnIndex a column index
+     * @param decimalPlaces the number of decimal places the values in the column are rounded to, or null if they
+     * aren't rounded. Values are rounded by whoever sets them, e.g. using {@link Decimals#round(double, int)}.
+     */
+    public void setDecimalPlaces(int columnIndex, Integer decimalPlaces) {
+
+        checkElementIndex(columnIndex, columns.length);
+        checkArgument(decimalPlaces == null
+                || (decimalPlaces >= 0 && decimalPlaces <= Decimals.MAXIMUM_DECIMAL_PLACES));
+
+        this.decimalPlaces[columnIndex] = decimalPlaces;
+    }
+
+    /**
+     * @param row a row index
+     * @return the timestamp of the row in seconds since the epoch
+     */
+    public long getEpochSecond(int row) {
+
+        checkElementIndex(row, size);
+
+        return epochSeconds[row];
+    }
+
+    /**
+     * @param row a row index
+     * @return the timestamp of the row
+     */
+    public OffsetDateTime getTimestamp(int row) {
+
+        checkElementIndex(row, size);
+
+        return LocalDateTime.ofEpochSecond(epochSeconds[row], nanoOfSecond, offset).atOffset(offset);
+    }
+
+    /**
+     * @return the offset common to the timestamps in this batch
+     */
+    public ZoneOffset getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param row a row index
+     * @param columnIndex a column index
+     * @return the value in the specified row and column
+     */
+    public double getValue(int row, int columnIndex) {
+
+        checkElementIndex(row, size);
+
+        return columns[columnIndex][row];
+    }
+
+    /**
+     * Adds a row whose values are all zero until set.
+     *
+     * @param epochSecond the timestamp of the row in seconds since the epoch
+     * @return the index of the new row
+     */
+    public int addRow(long epochSecond) {
+
+        if (size == epochSeconds.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+        }
+
+        epochSeconds[size] = epochSecond;
+
+        return size++;
+    }
+
+    public void setValue(int row, int columnIndex, double value) {
+
+        checkElementIndex(row, size);
+
+        columns[columnIndex][row] = value;
+    }
+
+    /**
+     * @param row a row index
+     * @return a value group holding a copy of the specified row
+     */
+    public TimestampedValueGroup getValueGroup(int row) {
+
+        TimestampedValueGroup valueGroup = new TimestampedValueGroup();
+
+        valueGroup.setTimestamp(getTimestamp(row));
+
+        for (int column = 0; column < columns.length; column++) {
+            valueGroup.setValue(keys.get(column), columns[column][row]);
+        }
+
+        return valueGroup;
+    }
+
+    /**
+     * @return a view of this batch as a list of value groups, each of which is created when it's retrieved
+     */
+    public List<TimestampedValueGroup> getValueGroups() {
+
+        return new AbstractList<TimestampedValueGroup>() {
+
+            @Override
+            public TimestampedValueGroup get(int index) {
+                return getValueGroup(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import javax.validation.Valid;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The variation of a trend across the users of a population. Each user gets a trend of their own, whose start value,
+ * end value and standard deviation are drawn from random variables centred on the values of the configured trend.
+ *
+ * @author Emerson Farrugia
+ */
+public class TrendVariation {
+
+    private BoundedRandomVariable startValue;
+    private BoundedRandomVariable endValue;
+    private BoundedRandomVariable standardDeviation;
+
+    /**
+     * @return the variable the start value of a user's trend is drawn from, or null if the start value doesn't vary
+     */
+    @Valid
+    public BoundedRandomVariable getStartValue() {
+        return startValue;
+    }
+
+    public void setStartValue(BoundedRandomVariable startValue) {
+        this.startValue = startValue;
+    }
+
+    /**
+     * @return the variable the end value of a user's trend is drawn from, or null if the end value doesn't vary
+     */
+    @Valid
+    public BoundedRandomVariable getEndValue() {
+        return endValue;
+    }
+
+    public void setEndValue(BoundedRandomVariable endValue) {
+        this.endValue = endValue;
+    }
+
+    /**
+     * @return the variable the standard deviation of a user's trend is drawn from, or null if the standard deviation
+     * doesn't vary. Negative draws are treated as zero.
+     */
+    @Valid
+    public BoundedRandomVariable getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public void setStandardDeviation(BoundedRandomVariable standardDeviation) {
+        this.standardDeviation = standardDeviation;
+    }
+
+    /**
+     * @param trend the configured trend
+     * @param randomGenerator the random number generator to draw from
+     * @return a trend for a single user, with the same bounds and seed as the configured trend
+     */
+    public BoundedRandomVariableTrend newTrend(BoundedRandomVariableTrend trend, RandomGenerator randomGenerator) {
+
+        checkNotNull(trend);
+        checkNotNull(randomGenerator);
+
+        BoundedRandomVariable variable = trend.getVariable();
+
+        double userStartValue = startValue != null
+                ? startValue.nextValue(trend.getStartValue(), randomGenerator)
+                : trend.getStartValue();
+
+        double userEndValue = endValue != null
+                ? endValue.nextValue(trend.getEndValue(), randomGenerator)
+                : trend.getEndValue();
+
+        double userStandardDeviation = standardDeviation != null
+                ? Math.max(0, standardDeviation.nextValue(variable.getStandardDeviation(), randomGenerator))
+                : variable.getStandardDeviation();
+
+        BoundedRandomVariable userVariable = new BoundedRandomVariable(userStandardDeviation);
+        userVariable.setMinimumValue(variable.getMinimumValue());
+        userVariable.setMaximumValue(variable.getMaximumValue());
+
+        BoundedRandomVariableTrend userTrend =
+                new BoundedRandomVariableTrend(userVariable, userStartValue, userEndValue);
+        userTrend.setSeed(trend.getSeed());
+        userTrend.setDecimalPlaces(trend.getDecimalPlaces());
+
+        return userTrend;
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder("TrendVariation{");
+
+        sb.append("startValue=").append(startValue);
+        sb.append(", endValue=").append(endValue);
+        sb.append(", standardDeviation=").append(standardDeviation);
+        sb.append('}');
+
+        return sb.toString();
+    }
+}
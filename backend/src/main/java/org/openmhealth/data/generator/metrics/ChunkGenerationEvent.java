@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timestamp;
+
+import static jdk.jfr.Timestamp.MILLISECONDS_SINCE_EPOCH;
+
+
+/**
+ * A Flight Recorder event spanning the generation of the value groups in a chunk of a request.
+ *
+ * @author Emerson Farrugia
+ */
+@Name("org.openmhealth.data.generator.ChunkGeneration")
+@Label("Chunk Generation")
+@Category({"Open mHealth", "Data Generator"})
+@Description("The generation of the value groups in a chunk of the time range of a request.")
+public class ChunkGenerationEvent extends Event {
+
+    @Label("Generator")
+    private String generatorName;
+
+    @Label("User")
+    private String userId;
+
+    @Label("Chunk Start Date Time")
+    @Timestamp(MILLISECONDS_SINCE_EPOCH)
+    private long chunkStartDateTime;
+
+    @Label("Value Groups")
+    private long valueGroupCount;
+
+
+    public void setGeneratorName(String generatorName) {
+        this.generatorName = generatorName;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * @param chunkStartDateTime the start of the chunk, in milliseconds since the epoch
+     */
+    public void setChunkStartDateTime(long chunkStartDateTime) {
+        this.chunkStartDateTime = chunkStartDateTime;
+    }
+
+    public void setValueGroupCount(long valueGroupCount) {
+        this.valueGroupCount = valueGroupCount;
+    }
+}
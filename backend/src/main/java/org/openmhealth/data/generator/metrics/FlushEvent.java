@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import static jdk.jfr.DataAmount.BYTES;
+
+
+/**
+ * A Flight Recorder event spanning a flush of the writing service, which happens at the end of each request.
+ *
+ * @author Emerson Farrugia
+ */
+@Name("org.openmhealth.data.generator.Flush")
+@Label("Flush")
+@Category({"Open mHealth", "Data Generator"})
+@Description("A flush of the writing service at the end of a request.")
+public class FlushEvent extends Event {
+
+    @Label("Generator")
+    private String generatorName;
+
+    @Label("Bytes")
+    @DataAmount(BYTES)
+    private long byteCount;
+
+
+    public void setGeneratorName(String generatorName) {
+        this.generatorName = generatorName;
+    }
+
+    /**
+     * @param byteCount the number of bytes written by the flush
+     */
+    public void setByteCount(long byteCount) {
+        this.byteCount = byteCount;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * Counters of the work done for a single generator, and of the time spent in each stage of that work. Times are
+ * summed across threads, so they can exceed the duration of the run. Instances are thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class GeneratorMetrics {
+
+    private final String generatorName;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder dataPointCount = new LongAdder();
+    private final LongAdder byteCount = new LongAdder();
+    private final LongAdder samplingTimeInNs = new LongAdder();
+    private final LongAdder buildingTimeInNs = new LongAdder();
+    private final LongAdder serializationTimeInNs = new LongAdder();
+    private final LongAdder writingTimeInNs = new LongAdder();
+
+
+    public GeneratorMetrics(String generatorName) {
+
+        checkNotNull(generatorName);
+        this.generatorName = generatorName;
+    }
+
+    public String getGeneratorName() {
+        return generatorName;
+    }
+
+    /**
+     * @return the number of requests that have finished
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public void addRequest() {
+        requestCount.increment();
+    }
+
+    /**
+     * @return the number of data points that have been handed to the writing service
+     */
+    public long getDataPointCount() {
+        return dataPointCount.sum();
+    }
+
+    public void addDataPoints(long count) {
+        dataPointCount.add(count);
+    }
+
+    /**
+     * @return the number of bytes that have been written, if the writing service counts them
+     */
+    public long getByteCount() {
+        return byteCount.sum();
+    }
+
+    public void addBytes(long count) {
+        byteCount.add(count);
+    }
+
+    /**
+     * @return the time spent generating value groups, or waiting for them if they're generated on chunk threads
+     */
+    public long getSamplingTimeInNs() {
+        return samplingTimeInNs.sum();
+    }
+
+    public void addSamplingTime(long durationInNs) {
+        samplingTimeInNs.add(durationInNs);
+    }
+
+    /**
+     * @return the time spent building measures and data points from value groups
+     */
+    public long getBuildingTimeInNs() {
+        return buildingTimeInNs.sum();
+    }
+
+    public void addBuildingTime(long durationInNs) {
+        buildingTimeInNs.add(durationInNs);
+    }
+
+    /**
+     * @return the time the writing service spent on data points other than input and output, which is mostly spent
+     * serializing and compressing them
+     */
+    public long getSerializationTimeInNs() {
+        return serializationTimeInNs.sum();
+    }
+
+    public void addSerializationTime(long durationInNs) {
+        serializationTimeInNs.add(durationInNs);
+    }
+
+    /**
+     * @return the time the writing service spent writing bytes to the operating system and syncing them
+     */
+    public long getWritingTimeInNs() {
+        return writingTimeInNs.sum();
+    }
+
+    public void addWritingTime(long durationInNs) {
+        writingTimeInNs.add(durationInNs);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * A Flight Recorder event spanning a measure generation request, from the generation of its first value groups
+ * to the hand-off of its last data points to the writing service.
+ *
+ * @author Emerson Farrugia
+ */
+@Name("org.openmhealth.data.generator.Request")
+@Label("Measure Generation Request")
+@Category({"Open mHealth", "Data Generator"})
+@Description("A measure generation request, until its data points have been handed to the writing service.")
+public class RequestEvent extends Event {
+
+    @Label("Generator")
+    private String generatorName;
+
+    @Label("User")
+    private String userId;
+
+    @Label("Data Points")
+    private long dataPointCount;
+
+
+    public void setGeneratorName(String generatorName) {
+        this.generatorName = generatorName;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public void setDataPointCount(long dataPointCount) {
+        this.dataPointCount = dataPointCount;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The progress of a running measure generation request. Progress is updated by the thread running the request, and
+ * can be read by any thread.
+ *
+ * @author Emerson Farrugia
+ */
+public class RequestProgress {
+
+    private final String generatorName;
+    private final String userId;
+    private final long startEpochSecond;
+    private final long endEpochSecond;
+    private final long startTimeInNs = System.nanoTime();
+    private volatile long latestEpochSecond;
+    private volatile long dataPointCount = 0;
+
+
+    public RequestProgress(MeasureGenerationRequest request) {
+
+        checkNotNull(request);
+
+        this.generatorName = request.getGeneratorName();
+        this.userId = request.getUserId();
+        this.startEpochSecond = request.getStartDateTime().toEpochSecond();
+        this.endEpochSecond = request.getEndDateTime().toEpochSecond();
+        this.latestEpochSecond = startEpochSecond;
+    }
+
+    public String getGeneratorName() {
+        return generatorName;
+    }
+
+    /**
+     * @return the user the request generates data for, or null if it's the configured user
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @param latestEpochSecond the epoch second of the latest value group that has been generated
+     * @param dataPointCount the number of data points that have been generated since the last update
+     */
+    public void update(long latestEpochSecond, long dataPointCount) {
+
+        this.latestEpochSecond = latestEpochSecond;
+        this.dataPointCount += dataPointCount;
+    }
+
+    public long getDataPointCount() {
+        return dataPointCount;
+    }
+
+    /**
+     * @return the fraction of the time range of the request that has been generated
+     */
+    public double getFractionDone() {
+
+        if (endEpochSecond <= startEpochSecond) {
+            return 1;
+        }
+
+        double fraction = (double) (latestEpochSecond - startEpochSecond) / (endEpochSecond - startEpochSecond);
+
+        return Math.min(1, Math.max(0, fraction));
+    }
+
+    /**
+     * @return the number of seconds since the request started
+     */
+    public double getElapsedTimeInS() {
+        return (System.nanoTime() - startTimeInNs) / 1e9;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+
+/**
+ * The metrics of a run. Generator metrics are collected as requests run, the progress, throughput and estimated time
+ * remaining are logged periodically by a background thread, and a report of the run can be written to a JSON file
+ * once the run is over.
+ *
+ * @author Emerson Farrugia
+ */
+@Component
+public class RunMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(RunMetrics.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${metrics.report-interval-in-s:10}")
+    private Integer reportIntervalInS;
+
+    @Value("${metrics.report-file:#{null}}")
+    private String reportFilename;
+
+    private final Map<String, GeneratorMetrics> generatorMetrics = new ConcurrentSkipListMap<>();
+    private final Set<RequestProgress> runningRequests = ConcurrentHashMap.newKeySet();
+    private final AtomicLong finishedRequestCount = new AtomicLong();
+    private long requestCount;
+    private OffsetDateTime startDateTime;
+    private long startTimeInNs;
+    private OffsetDateTime endDateTime;
+    private long endTimeInNs;
+    private ScheduledExecutorService reportExecutorService;
+
+
+    /**
+     * @param generatorName the name of a generator
+     * @return the metrics of the generator, which are created if they don't exist
+     */
+    public GeneratorMetrics getGeneratorMetrics(String generatorName) {
+        return generatorMetrics.computeIfAbsent(generatorName, GeneratorMetrics::new);
+    }
+
+    /**
+     * @return the metrics of each generator, ordered by generator name
+     */
+    public Collection<GeneratorMetrics> getGeneratorMetrics() {
+        return generatorMetrics.values();
+    }
+
+    /**
+     * Starts the run, and the periodic reporting of its progress unless the report interval is 0.
+     *
+     * @param requestCount the number of requests the run consists of
+     */
+    public synchronized void start(long requestCount) {
+
+        checkArgument(requestCount >= 0, "The request count can't be negative.");
+        checkArgument(reportIntervalInS >= 0, "The report interval can't be negative.");
+        checkState(startDateTime == null, "The run has already started.");
+
+        this.requestCount = requestCount;
+        this.startDateTime = OffsetDateTime.now();
+        this.startTimeInNs = System.nanoTime();
+
+        if (reportIntervalInS > 0) {
+            reportExecutorService = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("metrics-report").setDaemon(true).build());
+
+            reportExecutorService.scheduleAtFixedRate(this::logProgress, reportIntervalInS, reportIntervalInS,
+                    SECONDS);
+        }
+    }
+
+    /**
+     * @param request a request that is starting to run
+     * @return the progress of the request, which is reported until the request finishes
+     */
+    public RequestProgress startRequest(MeasureGenerationRequest request) {
+
+        RequestProgress progress = new RequestProgress(request);
+
+        runningRequests.add(progress);
+
+        return progress;
+    }
+
+    /**
+     * @param progress the progress of a request that has finished running
+     */
+    public void finishRequest(RequestProgress progress) {
+
+        checkNotNull(progress);
+
+        if (runningRequests.remove(progress)) {
+            getGeneratorMetrics(progress.getGeneratorName()).addRequest();
+            finishedRequestCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the periodic reporting and logs the throughput of the run.
+     */
+    public synchronized void stop() {
+
+        if (startDateTime == null || endDateTime != null) {
+            return;
+        }
+
+        endDateTime = OffsetDateTime.now();
+        endTimeInNs = System.nanoTime();
+
+        if (reportExecutorService != null) {
+            reportExecutorService.shutdownNow();
+        }
+
+        double durationInS = (endTimeInNs - startTimeInNs) / 1e9;
+
+        log.info("The run took {} and wrote {} data point(s) per second and {} kilobyte(s) per second.",
+                formatDuration(durationInS), format(getDataPointCount() / durationInS),
+                format(getByteCount() / 1024.0 / durationInS));
+    }
+
+    private long getDataPointCount() {
+
+        long dataPointCount = 0;
+
+        for (GeneratorMetrics metrics : generatorMetrics.values()) {
+            dataPointCount += metrics.getDataPointCount();
+        }
+
+        return dataPointCount;
+    }
+
+    private long getByteCount() {
+
+        long byteCount = 0;
+
+        for (GeneratorMetrics metrics : generatorMetrics.values()) {
+            byteCount += metrics.getByteCount();
+        }
+
+        return byteCount;
+    }
+
+    /**
+     * Logs the progress of the run as a whole, followed by that of each running request.
+     */
+    private void logProgress() {
+
+        double elapsedTimeInS = (System.nanoTime() - startTimeInNs) / 1e9;
+
+        // each running request counts for the fraction of its time range that has been generated
+        double finishedRequests = finishedRequestCount.get();
+
+        for (RequestProgress progress : runningRequests) {
+            finishedRequests += progress.getFractionDone();
+        }
+
+        double fractionDone = requestCount > 0 ? Math.min(1, finishedRequests / requestCount) : 1;
+
+        log.info("The run is {}% done after {}, writing {} data point(s) per second and {} kilobyte(s) per second, "
+                        + "with an estimated {} remaining.", format(fractionDone * 100), formatDuration(elapsedTimeInS),
+                format(getDataPointCount() / elapsedTimeInS), format(getByteCount() / 1024.0 / elapsedTimeInS),
+                formatTimeRemaining(fractionDone, elapsedTimeInS));
+
+        for (RequestProgress progress : runningRequests) {
+
+            double requestElapsedTimeInS = progress.getElapsedTimeInS();
+
+            log.info("A request for the '{}' generator{} is {}% done, generating {} data point(s) per second, "
+                            + "with an estimated {} remaining.", progress.getGeneratorName(),
+                    progress.getUserId() != null ? " and user '" + progress.getUserId() + "'" : "",
+                    format(progress.getFractionDone() * 100),
+                    format(progress.getDataPointCount() / requestElapsedTimeInS),
+                    formatTimeRemaining(progress.getFractionDone(), requestElapsedTimeInS));
+        }
+    }
+
+    private String formatTimeRemaining(double fractionDone, double elapsedTimeInS) {
+
+        if (fractionDone <= 0) {
+            return "unknown time";
+        }
+
+        return formatDuration(elapsedTimeInS * (1 - fractionDone) / fractionDone);
+    }
+
+    private String formatDuration(double durationInS) {
+        return Duration.ofSeconds(Math.round(durationInS)).toString();
+    }
+
+    private String format(double value) {
+        return String.format("%.1f", value);
+    }
+
+    /**
+     * Writes a report of the run to the configured report file, if any. The times spent in each stage are summed
+     * across threads.
+     *
+     * @throws IOException if the report couldn't be written
+     */
+    public synchronized void writeReport() throws IOException {
+
+        checkState(endDateTime != null, "The report can't be written before the run has stopped.");
+
+        if (reportFilename == null) {
+            return;
+        }
+
+        double durationInS = (endTimeInNs - startTimeInNs) / 1e9;
+
+        ObjectNode report = objectMapper.createObjectNode();
+
+        report.put("start_date_time", startDateTime.toString());
+        report.put("end_date_time", endDateTime.toString());
+        report.put("duration_in_s", durationInS);
+        report.put("request_count", finishedRequestCount.get());
+        report.put("data_point_count", getDataPointCount());
+        report.put("size_in_bytes", getByteCount());
+        report.put("data_points_per_second", getDataPointCount() / durationInS);
+        report.put("bytes_per_second", getByteCount() / durationInS);
+
+        ObjectNode generators = report.putObject("generators");
+
+        for (GeneratorMetrics metrics : generatorMetrics.values()) {
+
+            ObjectNode generator = generators.putObject(metrics.getGeneratorName());
+
+            generator.put("request_count", metrics.getRequestCount());
+            generator.put("data_point_count", metrics.getDataPointCount());
+            generator.put("size_in_bytes", metrics.getByteCount());
+            generator.put("sampling_time_in_ms", metrics.getSamplingTimeInNs() / 1_000_000);
+            generator.put("building_time_in_ms", metrics.getBuildingTimeInNs() / 1_000_000);
+            generator.put("serialization_time_in_ms", metrics.getSerializationTimeInNs() / 1_000_000);
+            generator.put("writing_time_in_ms", metrics.getWritingTimeInNs() / 1_000_000);
+        }
+
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(reportFilename), report);
+
+        log.info("A report of the run has been written to '{}'.", reportFilename);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import static jdk.jfr.DataAmount.BYTES;
+
+
+/**
+ * A Flight Recorder event spanning a sync of a file to the storage device.
+ *
+ * @author Emerson Farrugia
+ */
+@Name("org.openmhealth.data.generator.Sync")
+@Label("File Sync")
+@Category({"Open mHealth", "Data Generator"})
+@Description("A sync of a file to the storage device.")
+public class SyncEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount(BYTES)
+    private long byteCount;
+
+
+    /**
+     * @param byteCount the number of bytes written to the file since it was last synced
+     */
+    public void setByteCount(long byteCount) {
+        this.byteCount = byteCount;
+    }
+}
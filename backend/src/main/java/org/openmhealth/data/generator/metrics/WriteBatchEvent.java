@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import static jdk.jfr.DataAmount.BYTES;
+import static jdk.jfr.Timespan.NANOSECONDS;
+
+
+/**
+ * A Flight Recorder event spanning the serialization and writing of a batch of data points by the writing service.
+ * The part of its duration that isn't I/O time is mostly spent serializing.
+ *
+ * @author Emerson Farrugia
+ */
+@Name("org.openmhealth.data.generator.WriteBatch")
+@Label("Write Batch")
+@Category({"Open mHealth", "Data Generator"})
+@Description("The serialization and writing of a batch of data points by the writing service.")
+public class WriteBatchEvent extends Event {
+
+    @Label("Generator")
+    private String generatorName;
+
+    @Label("Data Points")
+    private long dataPointCount;
+
+    @Label("Bytes")
+    @DataAmount(BYTES)
+    private long byteCount;
+
+    @Label("I/O Time")
+    @Timespan(NANOSECONDS)
+    private long ioTime;
+
+
+    public void setGeneratorName(String generatorName) {
+        this.generatorName = generatorName;
+    }
+
+    public void setDataPointCount(long dataPointCount) {
+        this.dataPointCount = dataPointCount;
+    }
+
+    public void setByteCount(long byteCount) {
+        this.byteCount = byteCount;
+    }
+
+    /**
+     * @param ioTime the time spent writing bytes to the operating system and syncing them, in nanoseconds
+     */
+    public void setIoTime(long ioTime) {
+        this.ioTime = ioTime;
+    }
+}
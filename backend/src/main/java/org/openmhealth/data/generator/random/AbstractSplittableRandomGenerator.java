@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+
+/**
+ * A base class for splittable random number generators that derives every kind of variate from a stream of 64-bit
+ * values.
+ *
+ * @author Emerson Farrugia
+ */
+public abstract class AbstractSplittableRandomGenerator implements SplittableRandomGenerator {
+
+    private double nextGaussian = Double.NaN;
+
+
+    /**
+     * Resets the state of the generator using the specified seed.
+     *
+     * @param seed the seed
+     */
+    protected abstract void reseed(long seed);
+
+    @Override
+    public abstract long nextLong();
+
+    @Override
+    public abstract AbstractSplittableRandomGenerator split();
+
+    @Override
+    public void setSeed(int seed) {
+        setSeed((long) seed);
+    }
+
+    @Override
+    public void setSeed(int[] seed) {
+
+        long combinedSeed = 0;
+
+        for (int value : seed) {
+            combinedSeed = combinedSeed * 31 + value;
+        }
+
+        setSeed(combinedSeed);
+    }
+
+    @Override
+    public final void setSeed(long seed) {
+
+        reseed(seed);
+        nextGaussian = Double.NaN;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+
+        int i = 0;
+
+        while (i < bytes.length) {
+            long bits = nextLong();
+
+            for (int n = Math.min(bytes.length - i, Long.BYTES); n-- > 0; bits >>>= Byte.SIZE) {
+                bytes[i++] = (byte) bits;
+            }
+        }
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public int nextInt(int n) {
+
+        checkArgument(n > 0);
+
+        // rejects the values that would otherwise bias the result towards smaller numbers
+        int bits;
+        int value;
+
+        do {
+            bits = nextInt() >>> 1;
+            value = bits % n;
+        }
+        while (bits - value + (n - 1) < 0);
+
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    @Override
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return a standard normal variate, generated using the Marsaglia polar method
+     */
+    @Override
+    public double nextGaussian() {
+
+        if (!Double.isNaN(nextGaussian)) {
+            double gaussian = nextGaussian;
+            nextGaussian = Double.NaN;
+            return gaussian;
+        }
+
+        double v1;
+        double v2;
+        double s;
+
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        }
+        while (s >= 1 || s == 0);
+
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+
+        nextGaussian = v2 * multiplier;
+        return v1 * multiplier;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A random number generator that serves Gaussian and exponential variates from blocks of primitives, which are
+ * refilled from an underlying generator using the ziggurat method. Uniform variates are drawn from the underlying
+ * generator directly. Instances aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class BlockVariateGenerator implements RandomGenerator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 512;
+
+    private final RandomGenerator randomGenerator;
+    private final int blockSize;
+
+    // the blocks are allocated on first use, since many generators only ever need one kind of variate
+    private double[] normals;
+    private int nextNormalIndex;
+    private double[] exponentials;
+    private int nextExponentialIndex;
+
+
+    public BlockVariateGenerator(RandomGenerator randomGenerator) {
+        this(randomGenerator, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockVariateGenerator(RandomGenerator randomGenerator, int blockSize) {
+
+        checkNotNull(randomGenerator);
+        checkArgument(blockSize > 0);
+
+        this.randomGenerator = randomGenerator;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return a standard normal variate
+     */
+    @Override
+    public double nextGaussian() {
+
+        if (normals == null || nextNormalIndex == normals.length) {
+            if (normals == null) {
+                normals = new double[blockSize];
+            }
+
+            ZigguratSampler.fillStandardNormals(randomGenerator, normals);
+            nextNormalIndex = 0;
+        }
+
+        return normals[nextNormalIndex++];
+    }
+
+    /**
+     * @return a standard exponential variate, i.e. one with a rate of 1
+     */
+    public double nextExponential() {
+
+        if (exponentials == null || nextExponentialIndex == exponentials.length) {
+            if (exponentials == null) {
+                exponentials = new double[blockSize];
+            }
+
+            ZigguratSampler.fillStandardExponentials(randomGenerator, exponentials);
+            nextExponentialIndex = 0;
+        }
+
+        return exponentials[nextExponentialIndex++];
+    }
+
+    @Override
+    public void setSeed(int seed) {
+
+        randomGenerator.setSeed(seed);
+        discardBlocks();
+    }
+
+    @Override
+    public void setSeed(int[] seed) {
+
+        randomGenerator.setSeed(seed);
+        discardBlocks();
+    }
+
+    @Override
+    public void setSeed(long seed) {
+
+        randomGenerator.setSeed(seed);
+        discardBlocks();
+    }
+
+    private void discardBlocks() {
+
+        nextNormalIndex = normals == null ? 0 : normals.length;
+        nextExponentialIndex = exponentials == null ? 0 : exponentials.length;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        randomGenerator.nextBytes(bytes);
+    }
+
+    @Override
+    public int nextInt() {
+        return randomGenerator.nextInt();
+    }
+
+    @Override
+    public int nextInt(int n) {
+        return randomGenerator.nextInt(n);
+    }
+
+    @Override
+    public long nextLong() {
+        return randomGenerator.nextLong();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return randomGenerator.nextBoolean();
+    }
+
+    @Override
+    public float nextFloat() {
+        return randomGenerator.nextFloat();
+    }
+
+    @Override
+    public double nextDouble() {
+        return randomGenerator.nextDouble();
+    }
+}
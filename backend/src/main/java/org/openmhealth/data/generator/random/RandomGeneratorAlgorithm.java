@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+
+/**
+ * The algorithms that can be used to generate random numbers.
+ *
+ * @author Emerson Farrugia
+ */
+public enum RandomGeneratorAlgorithm {
+
+    SPLITMIX64 {
+        @Override
+        public SplittableRandomGenerator newInstance(long seed) {
+            return new SplitMix64RandomGenerator(seed);
+        }
+    },
+
+    XOROSHIRO128_PLUS {
+        @Override
+        public SplittableRandomGenerator newInstance(long seed) {
+            return new XoRoShiRo128PlusRandomGenerator(seed);
+        }
+    };
+
+    /**
+     * @param seed the seed
+     * @return a new generator using this algorithm
+     */
+    public abstract SplittableRandomGenerator newInstance(long seed);
+}
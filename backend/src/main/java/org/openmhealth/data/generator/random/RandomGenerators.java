@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import java.security.SecureRandom;
+
+
+/**
+ * A utility class for creating random number generators and seeds.
+ *
+ * @author Emerson Farrugia
+ */
+public final class RandomGenerators {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final ThreadLocal<SplittableRandomGenerator> threadLocalGenerator =
+            ThreadLocal.withInitial(SplitMix64RandomGenerator::new);
+
+
+    private RandomGenerators() {
+    }
+
+    /**
+     * @return an unpredictable seed
+     */
+    public static long newSeed() {
+        return new SecureRandom().nextLong();
+    }
+
+    /**
+     * Derives a seed from a parent seed, such that different indexes yield statistically independent seeds. This is
+     * used to derive the seeds of requests from the seed of a run, for example.
+     *
+     * @param seed the parent seed
+     * @param index the index of the derived seed
+     * @return the derived seed
+     */
+    public static long deriveSeed(long seed, long index) {
+
+        // the SplitMix64 finalizer applied to a Weyl sequence
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return an unseeded generator owned by the current thread, for use when reproducibility isn't needed
+     */
+    public static SplittableRandomGenerator current() {
+        return threadLocalGenerator.get();
+    }
+}
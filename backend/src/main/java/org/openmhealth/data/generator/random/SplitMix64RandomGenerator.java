@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import java.util.SplittableRandom;
+
+
+/**
+ * A {@link SplittableRandomGenerator} backed by a {@link SplittableRandom}, which implements the SplitMix64
+ * algorithm.
+ *
+ * @author Emerson Farrugia
+ */
+public class SplitMix64RandomGenerator extends AbstractSplittableRandomGenerator {
+
+    private SplittableRandom random;
+
+
+    public SplitMix64RandomGenerator() {
+        this.random = new SplittableRandom();
+    }
+
+    public SplitMix64RandomGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    private SplitMix64RandomGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    protected void reseed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    @Override
+    public SplitMix64RandomGenerator split() {
+        return new SplitMix64RandomGenerator(random.split());
+    }
+}
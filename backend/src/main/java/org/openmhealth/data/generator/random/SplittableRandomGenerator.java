@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+
+/**
+ * A random number generator that can be split into statistically independent generators, typically one per thread or
+ * per stream of work. Instances aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public interface SplittableRandomGenerator extends RandomGenerator {
+
+    /**
+     * @return a new generator whose sequence is independent of this one. Splitting is deterministic, so repeating the
+     * same splits on generators seeded identically yields identical generators.
+     */
+    SplittableRandomGenerator split();
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.commons.math3.special.Erf.erfc;
+
+
+/**
+ * A sampler of the truncated normal distribution, i.e. the normal distribution restricted to an interval. The
+ * expected number of proposals per sample is bounded by a small constant wherever the mean lies relative to the
+ * interval, including when it lies far outside it.
+ *
+ * @author Emerson Farrugia
+ * @see <a href="http://dx.doi.org/10.1007/BF00143942">Robert, C. P. Simulation of truncated normal variables</a>
+ */
+public final class TruncatedNormalSampler {
+
+    private static final double SQRT_2 = Math.sqrt(2);
+    private static final double SQRT_2_PI = Math.sqrt(2 * Math.PI);
+
+
+    private TruncatedNormalSampler() {
+    }
+
+    /**
+     * @param randomGenerator the random number generator to draw from
+     * @param mean the mean of the untruncated distribution
+     * @param standardDeviation the standard deviation of the untruncated distribution
+     * @param minimumValue the lower bound of the interval, which may be negative infinity
+     * @param maximumValue the upper bound of the interval, which may be positive infinity
+     * @return a value drawn from the truncated distribution
+     */
+    public static double sample(RandomGenerator randomGenerator, double mean, double standardDeviation,
+            double minimumValue, double maximumValue) {
+
+        checkArgument(standardDeviation >= 0);
+        checkArgument(minimumValue <= maximumValue);
+
+        if (standardDeviation == 0 || minimumValue == maximumValue) {
+            return clamp(mean, minimumValue, maximumValue);
+        }
+
+        double a = (minimumValue - mean) / standardDeviation;
+        double b = (maximumValue - mean) / standardDeviation;
+        double z;
+
+        if (a >= 0) {
+            z = sampleStandardRightTail(randomGenerator, a, b);
+        }
+        else if (b <= 0) {
+            z = -sampleStandardRightTail(randomGenerator, -b, -a);
+        }
+        else {
+            z = sampleStandardCentral(randomGenerator, a, b);
+        }
+
+        // rounding can push a value that was drawn inside the interval just outside it
+        return clamp(mean + z * standardDeviation, minimumValue, maximumValue);
+    }
+
+    /**
+     * @return a standard normal variate restricted to [a, b], where a < 0 < b
+     */
+    private static double sampleStandardCentral(RandomGenerator randomGenerator, double a, double b) {
+
+        double z;
+
+        if (b - a >= SQRT_2_PI) {
+            // the interval holds at least half the mass, so propose from the untruncated distribution
+            do {
+                z = randomGenerator.nextGaussian();
+            }
+            while (z < a || z > b);
+        }
+        else {
+            // the interval is narrow, so propose uniformly within it
+            do {
+                z = a + (b - a) * randomGenerator.nextDouble();
+            }
+            while (randomGenerator.nextDouble() > Math.exp(-z * z / 2));
+        }
+
+        return z;
+    }
+
+    /**
+     * @return a standard normal variate restricted to [a, b], where 0 <= a < b
+     */
+    private static double sampleStandardRightTail(RandomGenerator randomGenerator, double a, double b) {
+
+        // the optimal rate of the translated exponential proposal, computed without overflowing for large a
+        double hypotenuse = Math.hypot(a, 2);
+        double rate = (a + hypotenuse) / 2;
+
+        // the interval width above which the exponential proposal accepts more often than the uniform one
+        double uniformWidthLimit = 2 / (a + hypotenuse) * Math.exp(0.5 - a / (a + hypotenuse));
+
+        double z;
+
+        if (b - a > uniformWidthLimit) {
+            do {
+                z = a + nextStandardExponential(randomGenerator) / rate;
+            }
+            while (z > b || randomGenerator.nextDouble() > Math.exp(-(z - rate) * (z - rate) / 2));
+        }
+        else {
+            do {
+                z = a + (b - a) * randomGenerator.nextDouble();
+            }
+            while (randomGenerator.nextDouble() > Math.exp(-(z - a) * (z + a) / 2));
+        }
+
+        return z;
+    }
+
+    private static double nextStandardExponential(RandomGenerator randomGenerator) {
+
+        if (randomGenerator instanceof BlockVariateGenerator) {
+            return ((BlockVariateGenerator) randomGenerator).nextExponential();
+        }
+
+        return ZigguratSampler.nextStandardExponential(randomGenerator);
+    }
+
+    /**
+     * @param mean the mean of the untruncated distribution
+     * @param standardDeviation the standard deviation of the untruncated distribution
+     * @param minimumValue the lower bound of the interval, which may be negative infinity
+     * @param maximumValue the upper bound of the interval, which may be positive infinity
+     * @return the probability that a value drawn from the untruncated distribution falls within the interval
+     */
+    public static double getProbabilityMass(double mean, double standardDeviation, double minimumValue,
+            double maximumValue) {
+
+        checkArgument(standardDeviation >= 0);
+        checkArgument(minimumValue <= maximumValue);
+
+        if (standardDeviation == 0) {
+            return mean >= minimumValue && mean <= maximumValue ? 1 : 0;
+        }
+
+        double a = (minimumValue - mean) / (standardDeviation * SQRT_2);
+        double b = (maximumValue - mean) / (standardDeviation * SQRT_2);
+
+        // the complementary error function keeps precision in the tails
+        if (a >= 0) {
+            return (erfc(a) - erfc(b)) / 2;
+        }
+        else if (b <= 0) {
+            return (erfc(-b) - erfc(-a)) / 2;
+        }
+        else {
+            return 1 - (erfc(-a) + erfc(b)) / 2;
+        }
+    }
+
+    private static double clamp(double value, double minimumValue, double maximumValue) {
+        return Math.min(Math.max(value, minimumValue), maximumValue);
+    }
+}
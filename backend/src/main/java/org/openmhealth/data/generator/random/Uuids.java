@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+
+/**
+ * A utility class for generating UUIDs from a random number generator, as opposed to the shared secure generator
+ * used by {@link java.util.UUID#randomUUID()}. UUIDs drawn from a seeded generator are therefore reproducible.
+ *
+ * @author Emerson Farrugia
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc9562">RFC 9562</a>
+ */
+public final class Uuids {
+
+    /**
+     * The latest timestamp a version 7 UUID can hold, in milliseconds since the epoch.
+     */
+    public static final long MAXIMUM_TIME_ORDERED_EPOCH_MILLI = (1L << 48) - 1;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    private Uuids() {
+    }
+
+    /**
+     * @param randomGenerator the random number generator to draw from
+     * @return a version 4 UUID, in canonical string form
+     */
+    public static String newRandomUuid(RandomGenerator randomGenerator) {
+
+        long mostSignificantBits = (randomGenerator.nextLong() & ~0xf000L) | 0x4000L;
+        long leastSignificantBits = (randomGenerator.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+
+        return toString(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @param epochMilli the timestamp of the UUID, in milliseconds since the epoch, which can't be negative or
+     * greater than {@link #MAXIMUM_TIME_ORDERED_EPOCH_MILLI}
+     * @param randomGenerator the random number generator to draw from
+     * @return a version 7 UUID, in canonical string form. The UUIDs of different timestamps sort in timestamp order,
+     * whereas those of the same timestamp sort in random order.
+     */
+    public static String newTimeOrderedUuid(long epochMilli, RandomGenerator randomGenerator) {
+
+        checkArgument(epochMilli >= 0 && epochMilli <= MAXIMUM_TIME_ORDERED_EPOCH_MILLI);
+
+        long mostSignificantBits = (epochMilli << 16) | 0x7000L | (randomGenerator.nextLong() & 0xfffL);
+        long leastSignificantBits = (randomGenerator.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+
+        return toString(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @return the canonical string form of the UUID with the specified bits, equal to that of
+     * {@link java.util.UUID#toString()}
+     */
+    public static String toString(long mostSignificantBits, long leastSignificantBits) {
+
+        char[] chars = new char[36];
+
+        writeHexDigits(chars, 0, mostSignificantBits >>> 32, 8);
+        chars[8] = '-';
+        writeHexDigits(chars, 9, mostSignificantBits >>> 16, 4);
+        chars[13] = '-';
+        writeHexDigits(chars, 14, mostSignificantBits, 4);
+        chars[18] = '-';
+        writeHexDigits(chars, 19, leastSignificantBits >>> 48, 4);
+        chars[23] = '-';
+        writeHexDigits(chars, 24, leastSignificantBits, 12);
+
+        return new String(chars);
+    }
+
+    /**
+     * Writes the lowest digits of a value in hexadecimal.
+     */
+    private static void writeHexDigits(char[] chars, int offset, long value, int digitCount) {
+
+        for (int i = offset + digitCount - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import java.util.SplittableRandom;
+
+
+/**
+ * A {@link SplittableRandomGenerator} that implements the xoroshiro128+ algorithm by Blackman and Vigna. Splitting
+ * draws two values from this generator and scrambles them using the SplitMix64 finalizer to form the state of the new
+ * generator. Split generators therefore start at unrelated points of the 2^128 - 1 period, including generators split
+ * off generators that were themselves split, and the chance of any two of them overlapping is negligible.
+ *
+ * @author Emerson Farrugia
+ * @see <a href="http://xoroshiro.di.unimi.it/">xoroshiro</a>
+ */
+public class XoRoShiRo128PlusRandomGenerator extends AbstractSplittableRandomGenerator {
+
+    private long state0;
+    private long state1;
+
+
+    public XoRoShiRo128PlusRandomGenerator() {
+        reseed(new SplittableRandom().nextLong());
+    }
+
+    public XoRoShiRo128PlusRandomGenerator(long seed) {
+        reseed(seed);
+    }
+
+    private XoRoShiRo128PlusRandomGenerator(long state0, long state1) {
+
+        this.state0 = state0;
+        this.state1 = state1;
+    }
+
+    @Override
+    protected void reseed(long seed) {
+
+        // the state is expanded from the seed using SplitMix64, as recommended by the authors
+        SplittableRandom seeder = new SplittableRandom(seed);
+
+        do {
+            state0 = seeder.nextLong();
+            state1 = seeder.nextLong();
+        }
+        while (state0 == 0 && state1 == 0);
+    }
+
+    @Override
+    public long nextLong() {
+
+        long s0 = state0;
+        long s1 = state1;
+        long result = s0 + s1;
+
+        s1 ^= s0;
+        state0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+        state1 = Long.rotateLeft(s1, 37);
+
+        return result;
+    }
+
+    @Override
+    public XoRoShiRo128PlusRandomGenerator split() {
+
+        // handing over the current state and jumping this generator ahead doesn't survive nested splits, since a
+        // generator split off that one would then get the state handed to the next generator split off this one
+        long splitState0;
+        long splitState1;
+
+        do {
+            splitState0 = mix(nextLong());
+            splitState1 = mix(nextLong());
+        }
+        while (splitState0 == 0 && splitState1 == 0);
+
+        return new XoRoShiRo128PlusRandomGenerator(splitState0, splitState1);
+    }
+
+    /**
+     * @return the value scrambled using the SplitMix64 finalizer
+     */
+    private static long mix(long value) {
+
+        long z = value;
+
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+        return z ^ (z >>> 31);
+    }
+}
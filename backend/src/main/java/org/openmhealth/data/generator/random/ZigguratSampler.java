@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+
+/**
+ * A sampler of standard normal and standard exponential variates that uses the ziggurat method by Marsaglia and Tsang.
+ * Most variates cost a single 64-bit draw, a table lookup and a multiplication. The layer index and the variate are
+ * taken from disjoint bits of each draw.
+ *
+ * @author Emerson Farrugia
+ * @see <a href="http://www.jstatsoft.org/v05/i08/">Marsaglia, G. and Tsang, W. W. The Ziggurat Method for
+ * Generating Random Variables</a>
+ */
+public final class ZigguratSampler {
+
+    private static final int NORMAL_LAYERS = 128;
+    private static final double NORMAL_R = 3.442619855899;
+    private static final double NORMAL_V = 9.91256303526217e-3;
+
+    private static final int EXPONENTIAL_LAYERS = 256;
+    private static final double EXPONENTIAL_R = 7.697117470131487;
+    private static final double EXPONENTIAL_V = 3.949659822581572e-3;
+
+    private static final long[] normalK = new long[NORMAL_LAYERS];
+    private static final double[] normalW = new double[NORMAL_LAYERS];
+    private static final double[] normalF = new double[NORMAL_LAYERS];
+
+    private static final long[] exponentialK = new long[EXPONENTIAL_LAYERS];
+    private static final double[] exponentialW = new double[EXPONENTIAL_LAYERS];
+    private static final double[] exponentialF = new double[EXPONENTIAL_LAYERS];
+
+    static {
+        double m1 = 0x1.0p31;
+        double dn = NORMAL_R;
+        double tn = dn;
+        double q = NORMAL_V / Math.exp(-0.5 * dn * dn);
+
+        normalK[0] = (long) ((dn / q) * m1);
+        normalK[1] = 0;
+        normalW[0] = q / m1;
+        normalW[NORMAL_LAYERS - 1] = dn / m1;
+        normalF[0] = 1;
+        normalF[NORMAL_LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+
+        for (int i = NORMAL_LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(NORMAL_V / dn + Math.exp(-0.5 * dn * dn)));
+            normalK[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            normalF[i] = Math.exp(-0.5 * dn * dn);
+            normalW[i] = dn / m1;
+        }
+
+        double m2 = 0x1.0p32;
+        double de = EXPONENTIAL_R;
+        double te = de;
+        q = EXPONENTIAL_V / Math.exp(-de);
+
+        exponentialK[0] = (long) ((de / q) * m2);
+        exponentialK[1] = 0;
+        exponentialW[0] = q / m2;
+        exponentialW[EXPONENTIAL_LAYERS - 1] = de / m2;
+        exponentialF[0] = 1;
+        exponentialF[EXPONENTIAL_LAYERS - 1] = Math.exp(-de);
+
+        for (int i = EXPONENTIAL_LAYERS - 2; i >= 1; i--) {
+            de = -Math.log(EXPONENTIAL_V / de + Math.exp(-de));
+            exponentialK[i + 1] = (long) ((de / te) * m2);
+            te = de;
+            exponentialF[i] = Math.exp(-de);
+            exponentialW[i] = de / m2;
+        }
+    }
+
+
+    private ZigguratSampler() {
+    }
+
+    /**
+     * @param randomGenerator the random number generator to draw from
+     * @return a standard normal variate
+     */
+    public static double nextStandardNormal(RandomGenerator randomGenerator) {
+
+        long bits = randomGenerator.nextLong();
+        int index = (int) bits & (NORMAL_LAYERS - 1);
+        int signedValue = (int) (bits >> 32);
+
+        if (Math.abs((long) signedValue) < normalK[index]) {
+            return signedValue * normalW[index];
+        }
+
+        return nextStandardNormalOutsideRectangles(randomGenerator, index, signedValue);
+    }
+
+    private static double nextStandardNormalOutsideRectangles(RandomGenerator randomGenerator, int index,
+            int signedValue) {
+
+        while (true) {
+            if (index == 0) {
+                // sample the tail beyond R using Marsaglia's method
+                double x;
+                double y;
+
+                do {
+                    x = -Math.log(nextOpenUniform(randomGenerator)) / NORMAL_R;
+                    y = -Math.log(nextOpenUniform(randomGenerator));
+                }
+                while (y + y < x * x);
+
+                return signedValue > 0 ? NORMAL_R + x : -NORMAL_R - x;
+            }
+
+            double x = signedValue * normalW[index];
+
+            if (normalF[index] + randomGenerator.nextDouble() * (normalF[index - 1] - normalF[index])
+                    < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+
+            long bits = randomGenerator.nextLong();
+            index = (int) bits & (NORMAL_LAYERS - 1);
+            signedValue = (int) (bits >> 32);
+
+            if (Math.abs((long) signedValue) < normalK[index]) {
+                return signedValue * normalW[index];
+            }
+        }
+    }
+
+    /**
+     * @param randomGenerator the random number generator to draw from
+     * @return a standard exponential variate, i.e. one with a rate of 1
+     */
+    public static double nextStandardExponential(RandomGenerator randomGenerator) {
+
+        long bits = randomGenerator.nextLong();
+        int index = (int) bits & (EXPONENTIAL_LAYERS - 1);
+        long unsignedValue = bits >>> 32;
+
+        if (unsignedValue < exponentialK[index]) {
+            return unsignedValue * exponentialW[index];
+        }
+
+        return nextStandardExponentialOutsideRectangles(randomGenerator, index, unsignedValue);
+    }
+
+    private static double nextStandardExponentialOutsideRectangles(RandomGenerator randomGenerator, int index,
+            long unsignedValue) {
+
+        while (true) {
+            if (index == 0) {
+                // the tail beyond R is itself exponential
+                return EXPONENTIAL_R - Math.log(nextOpenUniform(randomGenerator));
+            }
+
+            double x = unsignedValue * exponentialW[index];
+
+            if (exponentialF[index] + randomGenerator.nextDouble() * (exponentialF[index - 1] - exponentialF[index])
+                    < Math.exp(-x)) {
+                return x;
+            }
+
+            long bits = randomGenerator.nextLong();
+            index = (int) bits & (EXPONENTIAL_LAYERS - 1);
+            unsignedValue = bits >>> 32;
+
+            if (unsignedValue < exponentialK[index]) {
+                return unsignedValue * exponentialW[index];
+            }
+        }
+    }
+
+    /**
+     * Fills an array with standard normal variates.
+     *
+     * @param randomGenerator the random number generator to draw from
+     * @param variates the array to fill
+     */
+    public static void fillStandardNormals(RandomGenerator randomGenerator, double[] variates) {
+
+        for (int i = 0; i < variates.length; i++) {
+            variates[i] = nextStandardNormal(randomGenerator);
+        }
+    }
+
+    /**
+     * Fills an array with standard exponential variates.
+     *
+     * @param randomGenerator the random number generator to draw from
+     * @param variates the array to fill
+     */
+    public static void fillStandardExponentials(RandomGenerator randomGenerator, double[] variates) {
+
+        for (int i = 0; i < variates.length; i++) {
+            variates[i] = nextStandardExponential(randomGenerator);
+        }
+    }
+
+    /**
+     * @return a uniform variate in (0, 1]
+     */
+    private static double nextOpenUniform(RandomGenerator randomGenerator) {
+        return 1 - randomGenerator.nextDouble();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The properties of a type that are written by a {@link HandWrittenBeanSerializer}, each identified by the name it's
+ * written with and read using a plain accessor, instead of by introspection. A definition applies to subtypes of its
+ * type as well, so the properties of a base type are declared once.
+ *
+ * <p>
+ * A definition doesn't determine the order the properties are written in, nor whether null values are written, since
+ * those are taken from the bean serializer Jackson builds for the type. Properties of the type that a definition
+ * doesn't declare are written by that bean serializer's own property writers.
+ *
+ * @author Emerson Farrugia
+ */
+public class BeanSerializerDefinition<T> {
+
+    /**
+     * How the value of a property is written.
+     */
+    public enum PropertyKind {
+
+        /**
+         * A string, written as is.
+         */
+        STRING,
+
+        /**
+         * A number, written as is.
+         */
+        NUMBER,
+
+        /**
+         * Any other value, written using the serializer Jackson has for its type.
+         */
+        OBJECT
+    }
+
+    /**
+     * A property declared by a definition.
+     */
+    public static class Property<T> {
+
+        private final PropertyKind kind;
+        private final Function<T, ?> accessor;
+
+        private Property(PropertyKind kind, Function<T, ?> accessor) {
+
+            this.kind = kind;
+            this.accessor = accessor;
+        }
+
+        public PropertyKind getKind() {
+            return kind;
+        }
+
+        public Function<T, ?> getAccessor() {
+            return accessor;
+        }
+    }
+
+    private final Class<T> type;
+    private final Map<String, Property<T>> properties = new LinkedHashMap<>();
+    private Function<T, Map<String, Object>> additionalPropertiesAccessor;
+
+
+    /**
+     * @param type the type whose properties are declared
+     */
+    public BeanSerializerDefinition(Class<T> type) {
+
+        checkNotNull(type);
+
+        this.type = type;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the declared properties, by name
+     */
+    public Map<String, Property<T>> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * @return the accessor of the properties written by the any-getter of the type, or null if none is declared
+     */
+    public Function<T, Map<String, Object>> getAdditionalPropertiesAccessor() {
+        return additionalPropertiesAccessor;
+    }
+
+    public BeanSerializerDefinition<T> addString(String name, Function<T, String> accessor) {
+        return addProperty(name, PropertyKind.STRING, accessor);
+    }
+
+    public BeanSerializerDefinition<T> addNumber(String name, Function<T, ? extends Number> accessor) {
+        return addProperty(name, PropertyKind.NUMBER, accessor);
+    }
+
+    public BeanSerializerDefinition<T> addObject(String name, Function<T, ?> accessor) {
+        return addProperty(name, PropertyKind.OBJECT, accessor);
+    }
+
+    private BeanSerializerDefinition<T> addProperty(String name, PropertyKind kind, Function<T, ?> accessor) {
+
+        checkNotNull(name);
+        checkNotNull(accessor);
+        checkArgument(!properties.containsKey(name), "The property '%s' has already been declared.", name);
+
+        properties.put(name, new Property<>(kind, accessor));
+
+        return this;
+    }
+
+    /**
+     * @param accessor the accessor of the map the any-getter of the type returns
+     * @return this definition
+     */
+    public BeanSerializerDefinition<T> setAdditionalProperties(Function<T, Map<String, Object>> accessor) {
+
+        checkNotNull(accessor);
+
+        this.additionalPropertiesAccessor = accessor;
+
+        return this;
+    }
+}
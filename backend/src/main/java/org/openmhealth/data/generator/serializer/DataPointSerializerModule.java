@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import org.openmhealth.data.generator.serializer.BeanSerializerDefinition.Property;
+import org.openmhealth.data.generator.serializer.HandWrittenBeanSerializer.PropertySerializer;
+import org.openmhealth.schema.domain.omh.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.openmhealth.data.generator.serializer.HandWrittenBeanSerializer.newPropertySerializer;
+
+
+/**
+ * A Jackson module that serializes data points, their headers and the measures created by the generators using
+ * {@link HandWrittenBeanSerializer}s, instead of the bean serializers Jackson builds by introspection. Since the
+ * serializers are part of the object mapper, every output written using it benefits, not only JSON files.
+ *
+ * <p>
+ * The hand-written serializers replace the bean serializers when those are built, and follow them: properties are
+ * written in the order of the bean serializer, null values are omitted or written as the bean serializer does, and
+ * properties of the schema SDK that aren't declared here are written by the bean serializer's property writers. The
+ * output is therefore the same as without this module. Types that use an object identity or have an any-getter that
+ * isn't declared keep their bean serializers.
+ *
+ * <p>
+ * Date times are written by an {@link IsoOffsetDateTimeSerializer}, which formats them the way the Java time module
+ * does without going through a {@link java.time.format.DateTimeFormatter}.
+ *
+ * @author Emerson Farrugia
+ */
+public class DataPointSerializerModule extends SimpleModule {
+
+    private static final Logger log = LoggerFactory.getLogger(DataPointSerializerModule.class);
+
+    private final Map<Class<?>, BeanSerializerDefinition<?>> definitions = new HashMap<>();
+
+
+    public DataPointSerializerModule() {
+
+        super(DataPointSerializerModule.class.getSimpleName());
+
+        addDefinition(DataPointSerializerModule.<DataPoint<?>>newDefinition(DataPoint.class)
+                .addObject("header", DataPoint::getHeader)
+                .addObject("body", DataPoint::getBody)
+                .setAdditionalProperties(DataPoint::getAdditionalProperties));
+
+        addDefinition(new BeanSerializerDefinition<>(DataPointHeader.class)
+                .addString("id", DataPointHeader::getId)
+                .addObject("creation_date_time", DataPointHeader::getCreationDateTime)
+                .addObject("schema_id", DataPointHeader::getBodySchemaId)
+                .addObject("acquisition_provenance", DataPointHeader::getAcquisitionProvenance)
+                .addString("user_id", DataPointHeader::getUserId));
+
+        addDefinition(new BeanSerializerDefinition<>(DataPointAcquisitionProvenance.class)
+                .addString("source_name", DataPointAcquisitionProvenance::getSourceName)
+                .addObject("source_creation_date_time", DataPointAcquisitionProvenance::getSourceCreationDateTime)
+                .addObject("modality", DataPointAcquisitionProvenance::getModality));
+
+        addDefinition(new BeanSerializerDefinition<>(SchemaId.class)
+                .addString("namespace", SchemaId::getNamespace)
+                .addString("name", SchemaId::getName)
+                .addObject("version", SchemaId::getVersion));
+
+        addDefinition(new BeanSerializerDefinition<>(TimeFrame.class)
+                .addObject("date_time", TimeFrame::getDateTime)
+                .addObject("time_interval", TimeFrame::getTimeInterval));
+
+        addDefinition(new BeanSerializerDefinition<>(TimeInterval.class)
+                .addObject("start_date_time", TimeInterval::getStartDateTime)
+                .addObject("end_date_time", TimeInterval::getEndDateTime)
+                .addObject("duration", TimeInterval::getDuration));
+
+        // this covers the unit values of every measure, e.g. mass, length, duration and blood pressure
+        addDefinition(DataPointSerializerModule.<TypedUnitValue<?>>newDefinition(TypedUnitValue.class)
+                .addNumber("value", TypedUnitValue::getValue)
+                .addString("unit", TypedUnitValue::getUnit));
+
+        addDefinition(new BeanSerializerDefinition<>(Measure.class)
+                .addObject("effective_time_frame", Measure::getEffectiveTimeFrame)
+                .addObject("descriptive_statistic", Measure::getDescriptiveStatistic)
+                .addString("user_notes", Measure::getUserNotes));
+
+        addDefinition(new BeanSerializerDefinition<>(AmbientTemperature.class)
+                .addObject("ambient_temperature", AmbientTemperature::getAmbientTemperature));
+
+        addDefinition(new BeanSerializerDefinition<>(BloodGlucose.class)
+                .addObject("blood_glucose", BloodGlucose::getBloodGlucose));
+
+        addDefinition(new BeanSerializerDefinition<>(BloodPressure.class)
+                .addObject("systolic_blood_pressure", BloodPressure::getSystolicBloodPressure)
+                .addObject("diastolic_blood_pressure", BloodPressure::getDiastolicBloodPressure));
+
+        addDefinition(new BeanSerializerDefinition<>(BodyFatPercentage.class)
+                .addObject("body_fat_percentage", BodyFatPercentage::getBodyFatPercentage));
+
+        addDefinition(new BeanSerializerDefinition<>(BodyHeight.class)
+                .addObject("body_height", BodyHeight::getBodyHeight));
+
+        addDefinition(new BeanSerializerDefinition<>(BodyTemperature.class)
+                .addObject("body_temperature", BodyTemperature::getBodyTemperature)
+                .addObject("measurement_location", BodyTemperature::getMeasurementLocation));
+
+        addDefinition(new BeanSerializerDefinition<>(BodyWeight.class)
+                .addObject("body_weight", BodyWeight::getBodyWeight));
+
+        addDefinition(new BeanSerializerDefinition<>(HeartRate.class)
+                .addObject("heart_rate", HeartRate::getHeartRate));
+
+        addDefinition(new BeanSerializerDefinition<>(MinutesModerateActivity.class)
+                .addObject("minutes_moderate_activity", MinutesModerateActivity::getMinutesModerateActivity));
+
+        addDefinition(new BeanSerializerDefinition<>(PhysicalActivity.class)
+                .addString("activity_name", PhysicalActivity::getActivityName)
+                .addObject("distance", PhysicalActivity::getDistance));
+
+        addDefinition(new BeanSerializerDefinition<>(SleepDuration.class)
+                .addObject("sleep_duration", SleepDuration::getSleepDuration));
+
+        addDefinition(new BeanSerializerDefinition<>(StepCount.class)
+                .addNumber("step_count", StepCount::getStepCount));
+
+        addSerializer(OffsetDateTime.class, new IsoOffsetDateTimeSerializer());
+
+        setSerializerModifier(new BeanSerializerModifier() {
+
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDescription,
+                    JsonSerializer<?> serializer) {
+
+                return newSerializer(beanDescription, serializer);
+            }
+        });
+    }
+
+    /**
+     * Creates a definition of a generic type, whose class literal is a raw type.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> BeanSerializerDefinition<T> newDefinition(Class<?> type) {
+        return new BeanSerializerDefinition<>((Class<T>) type);
+    }
+
+    private void addDefinition(BeanSerializerDefinition<?> definition) {
+        definitions.put(definition.getType(), definition);
+    }
+
+    /**
+     * @param beanDescription the description of a bean type
+     * @param serializer the serializer built for the type
+     * @return a hand-written serializer of the type, or the specified serializer if there's none
+     */
+    @SuppressWarnings("unchecked")
+    private <T> JsonSerializer<?> newSerializer(BeanDescription beanDescription, JsonSerializer<?> serializer) {
+
+        if (!(serializer instanceof BeanSerializerBase) || beanDescription.getObjectIdInfo() != null) {
+            return serializer;
+        }
+
+        Class<T> type = (Class<T>) beanDescription.getBeanClass();
+
+        // the definitions of a type and its supertypes are combined, e.g. those of a measure and of measures in general
+        Map<String, Property<T>> properties = new HashMap<>();
+        Function<T, Map<String, Object>> additionalPropertiesAccessor = null;
+
+        for (Class<?> superType = type; superType != null; superType = superType.getSuperclass()) {
+
+            BeanSerializerDefinition<T> definition = (BeanSerializerDefinition<T>) definitions.get(superType);
+
+            if (definition != null) {
+
+                definition.getProperties().forEach(properties::putIfAbsent);
+
+                if (additionalPropertiesAccessor == null) {
+                    additionalPropertiesAccessor = definition.getAdditionalPropertiesAccessor();
+                }
+            }
+        }
+
+        if (properties.isEmpty()) {
+            return serializer;
+        }
+
+        if (beanDescription.findAnyGetter() == null) {
+            additionalPropertiesAccessor = null;
+        }
+        else if (additionalPropertiesAccessor == null) {
+            log.debug("The bean serializer of '{}' is kept, since its any-getter isn't declared.", type.getName());
+            return serializer;
+        }
+
+        List<PropertySerializer<T>> propertySerializers = new ArrayList<>();
+        List<String> undeclaredPropertyNames = new ArrayList<>();
+
+        for (Iterator<PropertyWriter> iterator = serializer.properties(); iterator.hasNext(); ) {
+
+            PropertyWriter propertyWriter = iterator.next();
+            Property<T> property = properties.get(propertyWriter.getName());
+
+            // properties with serializers of their own are left to their writers, as are those that aren't declared
+            if (property != null && propertyWriter instanceof BeanPropertyWriter
+                    && !((BeanPropertyWriter) propertyWriter).hasSerializer()) {
+
+                propertySerializers.add(newPropertySerializer((BeanPropertyWriter) propertyWriter, property.getKind(),
+                        property.getAccessor()));
+            }
+            else {
+                propertySerializers.add(newPropertySerializer(propertyWriter));
+                undeclaredPropertyNames.add(propertyWriter.getName());
+            }
+        }
+
+        if (!undeclaredPropertyNames.isEmpty()) {
+            log.debug("The properties {} of '{}' are written by its bean serializer.", undeclaredPropertyNames,
+                    type.getName());
+        }
+
+        return new HandWrittenBeanSerializer<>(type, serializer, propertySerializers, additionalPropertiesAccessor);
+    }
+}
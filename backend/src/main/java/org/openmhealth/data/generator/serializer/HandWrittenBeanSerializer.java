@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.openmhealth.data.generator.serializer.BeanSerializerDefinition.PropertyKind;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A serializer that writes the properties of a bean using plain accessors, instead of the introspected property
+ * writers of a bean serializer. Property names are pre-encoded, strings and numbers are written straight to the
+ * generator, and other values are written using the serializers Jackson has for their types. Properties that have no
+ * accessor are written by the property writers of the bean serializer this serializer replaces.
+ *
+ * @author Emerson Farrugia
+ */
+public class HandWrittenBeanSerializer<T> extends StdSerializer<T> implements ResolvableSerializer {
+
+    /**
+     * Writes a single property of a bean, including its name.
+     */
+    public interface PropertySerializer<T> {
+
+        void serialize(T bean, JsonGenerator generator, SerializerProvider provider) throws IOException;
+    }
+
+    /**
+     * A serializer of a property that has an accessor.
+     */
+    private static class DeclaredPropertySerializer<T> implements PropertySerializer<T> {
+
+        private final BeanPropertyWriter propertyWriter;
+        private final SerializableString name;
+        private final PropertyKind kind;
+        private final Function<T, ?> accessor;
+        private final boolean suppressNulls;
+
+        // the serializers of the types of values seen so far, as kept by bean property writers
+        private PropertySerializerMap valueSerializers = PropertySerializerMap.emptyForProperties();
+
+        private DeclaredPropertySerializer(BeanPropertyWriter propertyWriter, PropertyKind kind,
+                Function<T, ?> accessor) {
+
+            this.propertyWriter = propertyWriter;
+            this.name = propertyWriter.getSerializedName();
+            this.kind = kind;
+            this.accessor = accessor;
+            this.suppressNulls = propertyWriter.willSuppressNulls();
+        }
+
+        @Override
+        public void serialize(T bean, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+            Object value = accessor.apply(bean);
+
+            if (value == null) {
+                if (!suppressNulls) {
+                    generator.writeFieldName(name);
+                    provider.defaultSerializeNull(generator);
+                }
+                return;
+            }
+
+            generator.writeFieldName(name);
+
+            if (kind == PropertyKind.STRING) {
+                generator.writeString((String) value);
+            }
+            else if (kind == PropertyKind.NUMBER && value instanceof BigDecimal) {
+                generator.writeNumber((BigDecimal) value);
+            }
+            else {
+                findValueSerializer(value.getClass(), provider).serialize(value, generator, provider);
+            }
+        }
+
+        private JsonSerializer<Object> findValueSerializer(Class<?> type, SerializerProvider provider)
+                throws JsonMappingException {
+
+            JsonSerializer<Object> serializer = valueSerializers.serializerFor(type);
+
+            if (serializer == null) {
+
+                PropertySerializerMap.SerializerAndMapResult result =
+                        valueSerializers.findAndAddSecondarySerializer(type, provider, propertyWriter);
+
+                valueSerializers = result.map;
+                serializer = result.serializer;
+            }
+
+            return serializer;
+        }
+    }
+
+    private final JsonSerializer<Object> beanSerializer;
+    private final PropertySerializer<T>[] propertySerializers;
+    private final Function<T, Map<String, Object>> additionalPropertiesAccessor;
+
+
+    /**
+     * @param type the type of the bean
+     * @param beanSerializer the bean serializer this serializer replaces
+     * @param propertySerializers the serializers of the properties, in the order they're written in
+     * @param additionalPropertiesAccessor the accessor of the properties written after the others, or null if there
+     * are none
+     */
+    @SuppressWarnings("unchecked")
+    public HandWrittenBeanSerializer(Class<T> type, JsonSerializer<?> beanSerializer,
+            List<PropertySerializer<T>> propertySerializers,
+            Function<T, Map<String, Object>> additionalPropertiesAccessor) {
+
+        super(type);
+
+        checkNotNull(beanSerializer);
+        checkNotNull(propertySerializers);
+
+        this.beanSerializer = (JsonSerializer<Object>) beanSerializer;
+        this.propertySerializers = propertySerializers.toArray(new PropertySerializer[propertySerializers.size()]);
+        this.additionalPropertiesAccessor = additionalPropertiesAccessor;
+    }
+
+    /**
+     * @param propertyWriter the property writer of the bean serializer, which determines the name of the property and
+     * whether null values are written
+     * @param kind how the value of the property is written
+     * @param accessor the accessor of the property
+     * @return a serializer of the property that uses the specified accessor
+     */
+    public static <T> PropertySerializer<T> newPropertySerializer(BeanPropertyWriter propertyWriter, PropertyKind kind,
+            Function<T, ?> accessor) {
+
+        return new DeclaredPropertySerializer<>(propertyWriter, kind, accessor);
+    }
+
+    /**
+     * @param propertyWriter a property writer of a bean serializer
+     * @return a serializer of the property that uses the specified writer
+     */
+    public static <T> PropertySerializer<T> newPropertySerializer(PropertyWriter propertyWriter) {
+
+        return (bean, generator, provider) -> {
+            try {
+                propertyWriter.serializeAsField(bean, generator, provider);
+            }
+            catch (IOException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new JsonMappingException("The property '" + propertyWriter.getName() + "' couldn't be written.",
+                        e);
+            }
+        };
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+
+        // the bean serializer still writes the properties that have no accessor, so its property writers are resolved
+        if (beanSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) beanSerializer).resolve(provider);
+        }
+    }
+
+    @Override
+    public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+        generator.writeStartObject();
+
+        for (PropertySerializer<T> propertySerializer : propertySerializers) {
+            propertySerializer.serialize(value, generator, provider);
+        }
+
+        if (additionalPropertiesAccessor != null) {
+
+            Map<String, Object> additionalProperties = additionalPropertiesAccessor.apply(value);
+
+            if (additionalProperties != null && !additionalProperties.isEmpty()) {
+                for (Map.Entry<String, Object> entry : additionalProperties.entrySet()) {
+                    provider.defaultSerializeField(entry.getKey(), entry.getValue(), generator);
+                }
+            }
+        }
+
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(T value, JsonGenerator generator, SerializerProvider provider,
+            TypeSerializer typeSerializer) throws IOException {
+
+        // type information is rare enough that it's left to the bean serializer
+        beanSerializer.serializeWithType(value, generator, provider, typeSerializer);
+    }
+}
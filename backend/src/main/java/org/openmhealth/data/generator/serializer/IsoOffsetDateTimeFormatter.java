@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+
+/**
+ * A formatter of date times in the format of {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}, which is how the object
+ * mapper writes them, e.g. {@code 2016-06-30T23:59:59.5-05:00}. Date times are written digit by digit into a buffer
+ * owned by the formatter. The buffer keeps the date and hour of the last date time formatted, and the formatter keeps
+ * the text of its offset, so a date time sharing them with the one before only has its minutes, seconds and fraction
+ * of a second written. Since generated date times are usually close together, that's most of them.
+ *
+ * <p>
+ * Date times whose year has more than four digits or is negative are formatted using the regular formatter. Instances
+ * aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class IsoOffsetDateTimeFormatter {
+
+    /**
+     * The maximum length of a formatted date time, e.g. {@code +999999999-12-31T23:59:59.999999999+18:00}.
+     */
+    public static final int MAXIMUM_LENGTH = 48;
+
+    // the length of the cached prefix, i.e. "yyyy-MM-ddTHH:"
+    private static final int PREFIX_LENGTH = 14;
+
+    private final char[] buffer = new char[MAXIMUM_LENGTH];
+
+    // the fields of the prefix in the buffer, where a year of -1 means the buffer holds no prefix
+    private int prefixYear = -1;
+    private int prefixMonth;
+    private int prefixDay;
+    private int prefixHour;
+
+    private ZoneOffset offset;
+    private char[] offsetId;
+
+
+    /**
+     * @param dateTime a date time
+     * @return the number of characters written to the start of the buffer
+     */
+    public int format(OffsetDateTime dateTime) {
+
+        int year = dateTime.getYear();
+
+        if (year < 0 || year > 9999) {
+            return formatUsingRegularFormatter(dateTime);
+        }
+
+        int month = dateTime.getMonthValue();
+        int day = dateTime.getDayOfMonth();
+        int hour = dateTime.getHour();
+
+        if (year != prefixYear || month != prefixMonth || day != prefixDay || hour != prefixHour) {
+
+            writeFourDigits(year, 0);
+            buffer[4] = '-';
+            writeTwoDigits(month, 5);
+            buffer[7] = '-';
+            writeTwoDigits(day, 8);
+            buffer[10] = 'T';
+            writeTwoDigits(hour, 11);
+            buffer[13] = ':';
+
+            prefixYear = year;
+            prefixMonth = month;
+            prefixDay = day;
+            prefixHour = hour;
+        }
+
+        int length = PREFIX_LENGTH;
+
+        writeTwoDigits(dateTime.getMinute(), length);
+        buffer[length + 2] = ':';
+        writeTwoDigits(dateTime.getSecond(), length + 3);
+        length += 5;
+
+        int nano = dateTime.getNano();
+
+        // the fraction is written without trailing zeros, and omitted if it's zero
+        if (nano > 0) {
+
+            buffer[length++] = '.';
+
+            int digitCount = 9;
+
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digitCount--;
+            }
+
+            for (int i = length + digitCount - 1; i >= length; i--) {
+                buffer[i] = (char) ('0' + nano % 10);
+                nano /= 10;
+            }
+
+            length += digitCount;
+        }
+
+        if (!dateTime.getOffset().equals(offset)) {
+            offset = dateTime.getOffset();
+            offsetId = offset.getId().toCharArray();
+        }
+
+        System.arraycopy(offsetId, 0, buffer, length, offsetId.length);
+
+        return length + offsetId.length;
+    }
+
+    /**
+     * @return the buffer date times are formatted into, which is overwritten by the next call to
+     * {@link #format(OffsetDateTime)}
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    private int formatUsingRegularFormatter(OffsetDateTime dateTime) {
+
+        String text = ISO_OFFSET_DATE_TIME.format(dateTime);
+
+        text.getChars(0, text.length(), buffer, 0);
+        prefixYear = -1;
+
+        return text.length();
+    }
+
+    private void writeTwoDigits(int value, int position) {
+
+        buffer[position] = (char) ('0' + value / 10);
+        buffer[position + 1] = (char) ('0' + value % 10);
+    }
+
+    private void writeFourDigits(int value, int position) {
+
+        writeTwoDigits(value / 100, position);
+        writeTwoDigits(value % 100, position + 2);
+    }
+}
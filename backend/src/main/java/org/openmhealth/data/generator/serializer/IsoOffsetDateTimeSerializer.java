@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.OffsetDateTimeSerializer;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+
+
+/**
+ * A serializer of date times that writes them using an {@link IsoOffsetDateTimeFormatter}, instead of the
+ * {@link java.time.format.DateTimeFormatter} used by the Java time module. The output is the same. Date times written
+ * as timestamps, or whose format is set by an annotation, are left to the serializer of the Java time module.
+ *
+ * @author Emerson Farrugia
+ */
+public class IsoOffsetDateTimeSerializer extends StdSerializer<OffsetDateTime> implements ContextualSerializer {
+
+    // serializers are shared by the threads using the object mapper, so each thread gets a formatter of its own
+    private static final ThreadLocal<IsoOffsetDateTimeFormatter> formatters =
+            ThreadLocal.withInitial(IsoOffsetDateTimeFormatter::new);
+
+    private final JsonSerializer<OffsetDateTime> fallbackSerializer = OffsetDateTimeSerializer.INSTANCE;
+
+
+    public IsoOffsetDateTimeSerializer() {
+        super(OffsetDateTime.class);
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+            throws JsonMappingException {
+
+        if (property != null && property.getMember() != null) {
+
+            JsonFormat.Value format = provider.getAnnotationIntrospector().findFormat(property.getMember());
+
+            if (format != null) {
+                return provider.handlePrimaryContextualization(fallbackSerializer, property);
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public void serialize(OffsetDateTime value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+
+        if (provider.isEnabled(WRITE_DATES_AS_TIMESTAMPS)) {
+            fallbackSerializer.serialize(value, generator, provider);
+            return;
+        }
+
+        IsoOffsetDateTimeFormatter formatter = formatters.get();
+        int length = formatter.format(value);
+
+        generator.writeString(formatter.getBuffer(), 0, length);
+    }
+
+    @Override
+    public void serializeWithType(OffsetDateTime value, JsonGenerator generator, SerializerProvider provider,
+            TypeSerializer typeSerializer) throws IOException {
+
+        fallbackSerializer.serializeWithType(value, generator, provider, typeSerializer);
+    }
+}
@@ -16,16 +16,21 @@
 
 package org.openmhealth.data.generator.service;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.domain.DataPointIdType;
 import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.random.RandomGenerators;
 import org.openmhealth.schema.domain.omh.*;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
 
-import static java.util.UUID.randomUUID;
 import static org.openmhealth.schema.domain.omh.DataPointModality.SENSED;
 
 
@@ -36,35 +41,91 @@ public abstract class AbstractDataPointGeneratorImpl<T extends Measure>
         implements DataPointGenerator<T> {
 
     @Value("${data.header.user-id:some-user}")
-    private String userId;
+    private String defaultUserId;
 
     @Value("${data.header.acquisition-provenance.source-name:generator}")
     private String sourceName;
 
+    private DataPointIdType idType = DataPointIdType.RANDOM;
+
+
+    /**
+     * @param idType the name of the type of identifier to assign to data points, e.g. "random" or "time-ordered"
+     */
+    @Value("${data.header.id-type:random}")
+    public void setIdType(String idType) {
+        this.idType = DataPointIdType.forName(idType);
+    }
+
+    @Override
+    public Iterable<DataPoint<T>> generateDataPoints(Iterable<TimestampedValueGroup> valueGroups,
+            RandomGenerator randomGenerator) {
+
+        return Iterables.transform(valueGroups, valueGroup -> newDataPoint(newMeasure(valueGroup), randomGenerator));
+    }
 
     @Override
-    public Iterable<DataPoint<T>> generateDataPoints(Iterable<TimestampedValueGroup> valueGroups) {
+    public Iterable<DataPoint<T>> generateDataPoints(TimestampedValueGroupBatch batch, String userId,
+            RandomGenerator randomGenerator) {
 
-        List<DataPoint<T>> dataPoints = new ArrayList<>();
+        String dataPointUserId = userId != null ? userId : defaultUserId;
 
-        for (TimestampedValueGroup timestampedValueGroup : valueGroups) {
-            dataPoints.add(newDataPoint(newMeasure(timestampedValueGroup)));
-        }
+        return () -> new AbstractIterator<DataPoint<T>>() {
+
+            private final IntFunction<T> measureFactory = newMeasureFactory(batch);
+            private int row = 0;
+
+            @Override
+            protected DataPoint<T> computeNext() {
 
-        return dataPoints;
+                if (row == batch.getSize()) {
+                    return endOfData();
+                }
+
+                return newDataPoint(measureFactory.apply(row++), dataPointUserId, randomGenerator);
+            }
+        };
     }
 
     /**
      * @param valueGroup a group of values
      * @return a measure corresponding to the specified values
      */
-    public abstract T newMeasure(TimestampedValueGroup valueGroup);
+    public T newMeasure(TimestampedValueGroup valueGroup) {
+        return newMeasureFactory(TimestampedValueGroupBatch.of(valueGroup)).apply(0);
+    }
+
+    /**
+     * @param batch a batch of value groups
+     * @return a function that creates the measure corresponding to a row of the batch, given its index. The keys this
+     * generator uses are resolved to columns when the function is created.
+     */
+    public abstract IntFunction<T> newMeasureFactory(TimestampedValueGroupBatch batch);
 
     /**
      * @param measure a measure
-     * @return a data point corresponding to the specified measure
+     * @return a data point corresponding to the specified measure, identified using an unseeded generator
      */
     public DataPoint<T> newDataPoint(T measure) {
+        return newDataPoint(measure, RandomGenerators.current());
+    }
+
+    /**
+     * @param measure a measure
+     * @param randomGenerator the random number generator used to generate the identifier of the data point
+     * @return a data point corresponding to the specified measure, associated with the configured user
+     */
+    public DataPoint<T> newDataPoint(T measure, RandomGenerator randomGenerator) {
+        return newDataPoint(measure, defaultUserId, randomGenerator);
+    }
+
+    /**
+     * @param measure a measure
+     * @param userId the user to associate the data point with
+     * @param randomGenerator the random number generator used to generate the identifier of the data point
+     * @return a data point corresponding to the specified measure
+     */
+    public DataPoint<T> newDataPoint(T measure, String userId, RandomGenerator randomGenerator) {
 
         TimeInterval effectiveTimeInterval = measure.getEffectiveTimeFrame().getTimeInterval();
         OffsetDateTime effectiveEndDateTime;
@@ -125,7 +186,7 @@ public abstract class AbstractDataPointGeneratorImpl<T extends Measure>
                         .build();
 
         DataPointHeader header =
-                new DataPointHeader.Builder(randomUUID().toString(), measure.getSchemaId(),
+                new DataPointHeader.Builder(newId(effectiveEndDateTime, randomGenerator), measure.getSchemaId(),
                         effectiveEndDateTime.plusMinutes(1))
                         .setAcquisitionProvenance(acquisitionProvenance)
                         .setUserId(userId)
@@ -133,4 +194,54 @@ public abstract class AbstractDataPointGeneratorImpl<T extends Measure>
 
         return new DataPoint<>(header, measure);
     }
+
+    /**
+     * @return the template definition of the data points of this generator, which declares the values that vary in
+     * the header and the effective time frame, along with those declared by {@link #newTemplateDefinition()}
+     */
+    @Override
+    public DataPointTemplateDefinition<T> getTemplateDefinition() {
+
+        DataPointTemplateDefinition<T> definition = newTemplateDefinition();
+
+        // the file writers copy the identifier to a top-level property to simplify imports into MongoDB
+        definition.addSlot("id", dataPoint -> dataPoint.getAdditionalProperties().get("id"));
+
+        definition.addSlot("header.id", dataPoint -> dataPoint.getHeader().getId());
+        definition.addSlot("header.creation_date_time", dataPoint -> dataPoint.getHeader().getCreationDateTime());
+        definition.addSlot("header.user_id", dataPoint -> dataPoint.getHeader().getUserId());
+        definition.addSlot("header.acquisition_provenance.source_creation_date_time",
+                dataPoint -> dataPoint.getHeader().getAcquisitionProvenance().getSourceCreationDateTime());
+
+        definition.addBodySlot("body.effective_time_frame.date_time",
+                measure -> measure.getEffectiveTimeFrame().getDateTime());
+        definition.addBodySlot("body.effective_time_frame.time_interval.start_date_time",
+                measure -> getEffectiveTimeInterval(measure).map(TimeInterval::getStartDateTime).orElse(null));
+        definition.addBodySlot("body.effective_time_frame.time_interval.end_date_time",
+                measure -> getEffectiveTimeInterval(measure).map(TimeInterval::getEndDateTime).orElse(null));
+        definition.addBodySlot("body.effective_time_frame.time_interval.duration.value",
+                measure -> getEffectiveTimeInterval(measure).map(TimeInterval::getDuration)
+                        .map(DurationUnitValue::getValue).orElse(null));
+
+        return definition;
+    }
+
+    private Optional<TimeInterval> getEffectiveTimeInterval(T measure) {
+        return Optional.ofNullable(measure.getEffectiveTimeFrame().getTimeInterval());
+    }
+
+    /**
+     * @return a template definition declaring the values that vary in the measures of this generator, apart from
+     * their effective time frames
+     */
+    protected abstract DataPointTemplateDefinition<T> newTemplateDefinition();
+
+    /**
+     * @param effectiveDateTime the effective date time of the measure the data point corresponds to
+     * @param randomGenerator a random number generator
+     * @return an identifier of the configured type whose random bits are drawn from the specified generator
+     */
+    protected String newId(OffsetDateTime effectiveDateTime, RandomGenerator randomGenerator) {
+        return idType.newId(effectiveDateTime, randomGenerator);
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.openmhealth.data.generator.service.FileSyncPolicy.NONE;
+import static org.openmhealth.data.generator.service.FileSyncPolicy.SIZE;
+
+
+/**
+ * A base class for services that write data points to files, configured using the "output.file" settings.
+ *
+ * @author Emerson Farrugia
+ */
+public abstract class AbstractFileDataPointWritingServiceImpl implements DataPointWritingService {
+
+    @Value("${output.file.filename:output.json}")
+    private String filename;
+
+    @Value("${output.file.append:true}")
+    private Boolean append;
+
+    @Value("${output.file.buffer-size-in-kb:1024}")
+    private Integer bufferSizeInKb;
+
+    @Value("${output.file.sync-interval-in-mb:256}")
+    private Integer syncIntervalInMb;
+
+    @Value("${output.file.compression-level:#{null}}")
+    private Integer compressionLevel;
+
+    @Value("${output.file.compression-threads:1}")
+    private Integer compressionThreads;
+
+    private FileSyncPolicy syncPolicy = NONE;
+    private FileCompression compression = FileCompression.NONE;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataPointTemplates dataPointTemplates;
+
+
+    /**
+     * @param syncPolicy the name of the policy that determines when data points are synced to the storage device,
+     * e.g. "none", "request" or "size"
+     */
+    @Value("${output.file.sync-policy:none}")
+    public void setSyncPolicy(String syncPolicy) {
+        this.syncPolicy = FileSyncPolicy.forName(syncPolicy);
+    }
+
+    /**
+     * @param compression the name of the format to compress files in, e.g. "none", "gzip", "zstd" or "lz4"
+     */
+    @Value("${output.file.compression:none}")
+    public void setCompression(String compression) {
+        this.compression = FileCompression.forName(compression);
+    }
+
+    /**
+     * @return the configured filename
+     */
+    protected String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return true if existing files should be appended to, false if they should be overwritten
+     */
+    protected boolean isAppend() {
+        return append;
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @param path the path of the file to write to, which is created if it doesn't exist and appended to otherwise
+     * @return a writer of data points to the file
+     * @throws IOException if the file couldn't be opened
+     */
+    protected DataPointFileWriter newDataPointFileWriter(Path path) throws IOException {
+
+        long syncIntervalInBytes = syncPolicy == SIZE ? syncIntervalInMb * 1024L * 1024L : 0;
+
+        FileChannelOutputStream fileOutputStream = new FileChannelOutputStream(
+                FileChannel.open(path, CREATE, WRITE, APPEND), bufferSizeInKb * 1024, syncIntervalInBytes,
+                syncPolicy != NONE);
+
+        try {
+            // data points are compressed on the fly, so that the file doesn't need compressing in a separate pass
+            OutputStream outputStream =
+                    compression.newOutputStream(fileOutputStream, compressionLevel, compressionThreads);
+
+            return new DataPointFileWriter(fileOutputStream, outputStream, objectMapper, syncPolicy,
+                    dataPointTemplates.newWriter());
+        }
+        catch (IOException | RuntimeException e) {
+            fileOutputStream.close();
+            throw e;
+        }
+    }
+}
@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.AmbientTemperature;
 import org.openmhealth.schema.domain.omh.TemperatureUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.TemperatureUnit.CELSIUS;
@@ -51,10 +53,19 @@ public class AmbientTemperatureDataPointGenerator extends AbstractDataPointGener
     }
 
     @Override
-    public AmbientTemperature newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<AmbientTemperature> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new AmbientTemperature.Builder(new TemperatureUnitValue(CELSIUS, valueGroup.getValue(TEMPERATURE_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> temperatures = batch.getDecimalColumn(TEMPERATURE_KEY);
+
+        return row -> new AmbientTemperature.Builder(new TemperatureUnitValue(CELSIUS, temperatures.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<AmbientTemperature> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(AmbientTemperature.class)
+                .addBodySlot("body.ambient_temperature.value", measure -> measure.getAmbientTemperature().getValue());
+    }
 }
@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BloodGlucose;
 import org.openmhealth.schema.domain.omh.TypedUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.BloodGlucoseUnit.MILLIGRAMS_PER_DECILITER;
@@ -52,12 +54,21 @@ public class BloodGlucoseDataPointGenerator
     }
 
     @Override
-    public BloodGlucose newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BloodGlucose> newMeasureFactory(TimestampedValueGroupBatch batch) {
+
+        IntFunction<BigDecimal> glucoseLevels = batch.getDecimalColumn(GLUCOSE_KEY);
 
         // TODO set the specimen source once the SDK is updated to omh:blood-glucose:2.0
-        return new BloodGlucose.Builder(
-                new TypedUnitValue<>(MILLIGRAMS_PER_DECILITER, valueGroup.getValue(GLUCOSE_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        return row -> new BloodGlucose.Builder(
+                new TypedUnitValue<>(MILLIGRAMS_PER_DECILITER, glucoseLevels.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BloodGlucose> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BloodGlucose.class)
+                .addBodySlot("body.blood_glucose.value", measure -> measure.getBloodGlucose().getValue());
+    }
 }
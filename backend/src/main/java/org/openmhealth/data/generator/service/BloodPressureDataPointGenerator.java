@@ -17,13 +17,15 @@
 package org.openmhealth.data.generator.service;
 
 import com.google.common.collect.Sets;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BloodPressure;
 import org.openmhealth.schema.domain.omh.DiastolicBloodPressure;
 import org.openmhealth.schema.domain.omh.SystolicBloodPressure;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static org.openmhealth.schema.domain.omh.BloodPressureUnit.MM_OF_MERCURY;
 
@@ -54,12 +56,25 @@ public class BloodPressureDataPointGenerator
     }
 
     @Override
-    public BloodPressure newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BloodPressure> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new BloodPressure.Builder(
-                new SystolicBloodPressure(MM_OF_MERCURY, valueGroup.getValue(SYSTOLIC_KEY)),
-                new DiastolicBloodPressure(MM_OF_MERCURY, valueGroup.getValue(DIASTOLIC_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> systolicPressures = batch.getDecimalColumn(SYSTOLIC_KEY);
+        IntFunction<BigDecimal> diastolicPressures = batch.getDecimalColumn(DIASTOLIC_KEY);
+
+        return row -> new BloodPressure.Builder(
+                new SystolicBloodPressure(MM_OF_MERCURY, systolicPressures.apply(row)),
+                new DiastolicBloodPressure(MM_OF_MERCURY, diastolicPressures.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BloodPressure> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BloodPressure.class)
+                .addBodySlot("body.systolic_blood_pressure.value",
+                        measure -> measure.getSystolicBloodPressure().getValue())
+                .addBodySlot("body.diastolic_blood_pressure.value",
+                        measure -> measure.getDiastolicBloodPressure().getValue());
+    }
 }
@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BodyFatPercentage;
 import org.openmhealth.schema.domain.omh.TypedUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.PercentUnit.PERCENT;
@@ -51,10 +53,19 @@ public class BodyFatPercentageDataPointGenerator extends AbstractDataPointGenera
     }
 
     @Override
-    public BodyFatPercentage newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BodyFatPercentage> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new BodyFatPercentage.Builder(new TypedUnitValue<>(PERCENT, valueGroup.getValue(FAT_PERCENTAGE_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> fatPercentages = batch.getDecimalColumn(FAT_PERCENTAGE_KEY);
+
+        return row -> new BodyFatPercentage.Builder(new TypedUnitValue<>(PERCENT, fatPercentages.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BodyFatPercentage> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BodyFatPercentage.class)
+                .addBodySlot("body.body_fat_percentage.value", measure -> measure.getBodyFatPercentage().getValue());
+    }
 }
@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BodyHeight;
 import org.openmhealth.schema.domain.omh.LengthUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.LengthUnit.METER;
@@ -51,10 +53,19 @@ public class BodyHeightDataPointGenerator extends AbstractDataPointGeneratorImpl
     }
 
     @Override
-    public BodyHeight newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BodyHeight> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new BodyHeight.Builder(new LengthUnitValue(METER, valueGroup.getValue(HEIGHT_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> heights = batch.getDecimalColumn(HEIGHT_KEY);
+
+        return row -> new BodyHeight.Builder(new LengthUnitValue(METER, heights.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BodyHeight> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BodyHeight.class)
+                .addBodySlot("body.body_height.value", measure -> measure.getBodyHeight().getValue());
+    }
 }
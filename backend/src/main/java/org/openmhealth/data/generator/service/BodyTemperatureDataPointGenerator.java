@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BodyTemperature;
 import org.openmhealth.schema.domain.omh.TemperatureUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.BodyTemperature.MeasurementLocation.ORAL;
@@ -52,11 +54,20 @@ public class BodyTemperatureDataPointGenerator extends AbstractDataPointGenerato
     }
 
     @Override
-    public BodyTemperature newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BodyTemperature> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new BodyTemperature.Builder(new TemperatureUnitValue(CELSIUS, valueGroup.getValue(TEMPERATURE_KEY)))
+        IntFunction<BigDecimal> temperatures = batch.getDecimalColumn(TEMPERATURE_KEY);
+
+        return row -> new BodyTemperature.Builder(new TemperatureUnitValue(CELSIUS, temperatures.apply(row)))
                 .setMeasurementLocation(ORAL)
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BodyTemperature> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BodyTemperature.class)
+                .addBodySlot("body.body_temperature.value", measure -> measure.getBodyTemperature().getValue());
+    }
 }
@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.BodyWeight;
 import org.openmhealth.schema.domain.omh.MassUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
@@ -51,10 +53,19 @@ public class BodyWeightDataPointGenerator extends AbstractDataPointGeneratorImpl
     }
 
     @Override
-    public BodyWeight newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<BodyWeight> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new BodyWeight.Builder(new MassUnitValue(KILOGRAM, valueGroup.getValue(WEIGHT_KEY)))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> weights = batch.getDecimalColumn(WEIGHT_KEY);
+
+        return row -> new BodyWeight.Builder(new MassUnitValue(KILOGRAM, weights.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<BodyWeight> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(BodyWeight.class)
+                .addBodySlot("body.body_weight.value", measure -> measure.getBodyWeight().getValue());
+    }
 }
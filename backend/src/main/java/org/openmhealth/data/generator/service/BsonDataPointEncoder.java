@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+
+/**
+ * An encoder of data points to BSON documents, in the format written by mongodump. A document is identified by the
+ * identifier in the header of its data point. Date times are encoded as BSON dates, integers as 32-bit or 64-bit
+ * integers depending on their size, and decimals as doubles. Instances aren't thread-safe.
+ *
+ * <p>
+ * Data points are serialized by a copy of the configured mapper, which hands date times to the encoder as they are
+ * instead of formatting them, so that they don't need parsing back.
+ *
+ * @author Emerson Farrugia
+ */
+public class BsonDataPointEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final BasicOutputBuffer outputBuffer = new BasicOutputBuffer();
+
+
+    /**
+     * @param objectMapper the mapper used to serialize data points, whose output is converted to BSON
+     */
+    public BsonDataPointEncoder(ObjectMapper objectMapper) {
+
+        checkNotNull(objectMapper);
+
+        this.objectMapper = objectMapper.copy()
+                .registerModule(new SimpleModule().addSerializer(OffsetDateTime.class, new DateTimeSerializer()));
+    }
+
+    /**
+     * A serializer that writes date times as embedded objects, which a token buffer without a codec keeps as is.
+     */
+    private static class DateTimeSerializer extends StdSerializer<OffsetDateTime> {
+
+        private DateTimeSerializer() {
+            super(OffsetDateTime.class);
+        }
+
+        @Override
+        public void serialize(OffsetDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * @param dataPoint a data point
+     * @param outputStream the stream to write the document of the data point to
+     * @return the number of bytes written
+     */
+    public int encode(DataPoint<?> dataPoint, OutputStream outputStream) throws IOException {
+
+        writeDocument(dataPoint);
+
+        return outputBuffer.pipe(outputStream);
+    }
+
+    /**
+     * @param dataPoint a data point
+     * @return the document of the data point
+     */
+    public RawBsonDocument encode(DataPoint<?> dataPoint) throws IOException {
+
+        writeDocument(dataPoint);
+
+        return new RawBsonDocument(outputBuffer.toByteArray());
+    }
+
+    private void writeDocument(DataPoint<?> dataPoint) throws IOException {
+
+        // the data point is serialized to tokens rather than text, which are then converted to BSON as they're read,
+        // and the buffer has no codec so that date times are kept as embedded objects
+        TokenBuffer tokenBuffer = new TokenBuffer(null, false);
+        objectMapper.writeValue(tokenBuffer, dataPoint);
+
+        outputBuffer.truncateToPosition(0);
+
+        try (JsonParser parser = tokenBuffer.asParser(); BsonBinaryWriter writer = new BsonBinaryWriter(outputBuffer)) {
+
+            checkState(parser.nextToken() == START_OBJECT);
+
+            writer.writeStartDocument();
+            writer.writeString("_id", dataPoint.getHeader().getId());
+            writeFields(parser, writer);
+            writer.writeEndDocument();
+        }
+    }
+
+    private void writeFields(JsonParser parser, BsonBinaryWriter writer) throws IOException {
+
+        while (parser.nextToken() != END_OBJECT) {
+
+            writer.writeName(parser.getCurrentName());
+            writeValue(parser, parser.nextToken(), writer);
+        }
+    }
+
+    private void writeValue(JsonParser parser, JsonToken token, BsonBinaryWriter writer) throws IOException {
+
+        switch (token) {
+
+            case START_OBJECT:
+                writer.writeStartDocument();
+                writeFields(parser, writer);
+                writer.writeEndDocument();
+                break;
+
+            case START_ARRAY:
+                writer.writeStartArray();
+
+                for (JsonToken elementToken = parser.nextToken(); elementToken != END_ARRAY;
+                     elementToken = parser.nextToken()) {
+                    writeValue(parser, elementToken, writer);
+                }
+
+                writer.writeEndArray();
+                break;
+
+            case VALUE_STRING:
+                writer.writeString(parser.getText());
+                break;
+
+            case VALUE_EMBEDDED_OBJECT:
+                Object value = parser.getEmbeddedObject();
+
+                checkState(value instanceof OffsetDateTime, "The embedded object '%s' can't be converted to BSON.",
+                        value);
+
+                writer.writeDateTime(((OffsetDateTime) value).toInstant().toEpochMilli());
+                break;
+
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        writer.writeInt32(parser.getIntValue());
+                        break;
+                    case LONG:
+                        writer.writeInt64(parser.getLongValue());
+                        break;
+                    default:
+                        writer.writeDouble(parser.getDoubleValue());
+                }
+                break;
+
+            case VALUE_NUMBER_FLOAT:
+                writer.writeDouble(parser.getDoubleValue());
+                break;
+
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                writer.writeBoolean(parser.getBooleanValue());
+                break;
+
+            case VALUE_NULL:
+                writer.writeNull();
+                break;
+
+            default:
+                throw new IllegalStateException("The JSON token '" + token + "' can't be converted to BSON.");
+        }
+    }
+}
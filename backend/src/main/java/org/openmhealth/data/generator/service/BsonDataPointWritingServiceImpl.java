@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+
+/**
+ * A service that writes data points as BSON documents to a database directory in the layout written by mongodump, so
+ * that it can be loaded using mongorestore. Each collection is written to a "collection.bson" file, along with a
+ * "collection.metadata.json" file. Data points are either written to a single collection, or to a collection per
+ * schema, named after the schema.
+ *
+ * @author Emerson Farrugia
+ * @see BsonDataPointEncoder
+ */
+@Service
+@Primary
+@ConditionalOnExpression("'${output.destination}' == 'bson'")
+public class BsonDataPointWritingServiceImpl implements DataPointWritingService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${output.bson.directory:dump/omh}")
+    private String directory;
+
+    @Value("${output.bson.collection:dataPoint}")
+    private String collectionName;
+
+    @Value("${output.bson.collection-per-schema:false}")
+    private Boolean collectionPerSchema;
+
+    @Value("${output.bson.buffer-size-in-kb:1024}")
+    private Integer bufferSizeInKb;
+
+    private BsonDataPointEncoder encoder;
+    private final Map<String, FileChannelOutputStream> collectionOutputStreams = new LinkedHashMap<>();
+    private boolean closed = false;
+
+
+    @PostConstruct
+    public void initializeEncoder() throws IOException {
+
+        encoder = new BsonDataPointEncoder(objectMapper);
+        Files.createDirectories(Paths.get(directory));
+    }
+
+    @Override
+    public synchronized long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException {
+
+        long written = 0;
+
+        for (DataPoint<?> dataPoint : dataPoints) {
+
+            String collection = collectionPerSchema
+                    ? dataPoint.getHeader().getBodySchemaId().getName()
+                    : collectionName;
+
+            encoder.encode(dataPoint, getCollectionOutputStream(collection));
+            written++;
+        }
+
+        return written;
+    }
+
+    /**
+     * @param collection the name of a collection
+     * @return the stream of the BSON file of the collection, which is created or truncated when first requested
+     */
+    private FileChannelOutputStream getCollectionOutputStream(String collection) throws IOException {
+
+        FileChannelOutputStream outputStream = collectionOutputStreams.get(collection);
+
+        if (outputStream == null) {
+
+            Path path = Paths.get(directory, collection + ".bson");
+
+            outputStream = new FileChannelOutputStream(FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING),
+                    bufferSizeInKb * 1024, 0, false);
+
+            collectionOutputStreams.put(collection, outputStream);
+            writeMetadata(collection);
+        }
+
+        return outputStream;
+    }
+
+    /**
+     * Writes the metadata file of a collection. The collection has default options and no indexes other than the
+     * index on "_id", which mongorestore creates anyway.
+     */
+    private void writeMetadata(String collection) throws IOException {
+
+        ObjectNode metadata = objectMapper.createObjectNode();
+
+        metadata.putObject("options");
+        metadata.putArray("indexes");
+
+        objectMapper.writeValue(Paths.get(directory, collection + ".metadata.json").toFile(), metadata);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+
+        for (FileChannelOutputStream outputStream : collectionOutputStreams.values()) {
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public synchronized long getByteCount() {
+
+        long byteCount = 0;
+
+        for (FileChannelOutputStream outputStream : collectionOutputStreams.values()) {
+            byteCount += outputStream.getByteCount();
+        }
+
+        return byteCount;
+    }
+
+    @Override
+    public synchronized long getIoTimeInNs() {
+
+        long ioTimeInNs = 0;
+
+        for (FileChannelOutputStream outputStream : collectionOutputStreams.values()) {
+            ioTimeInNs += outputStream.getIoTimeInNs();
+        }
+
+        return ioTimeInNs;
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        IOException exception = null;
+
+        for (FileChannelOutputStream outputStream : collectionOutputStreams.values()) {
+            try {
+                outputStream.close();
+            }
+            catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
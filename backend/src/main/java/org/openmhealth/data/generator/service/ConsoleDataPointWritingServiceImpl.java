@@ -16,37 +16,164 @@
 
 package org.openmhealth.data.generator.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.openmhealth.schema.domain.omh.DataPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.fasterxml.jackson.core.JsonEncoding.UTF8;
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 
 /**
+ * A service that writes data points to standard output, one JSON object per line. Data points are written as UTF-8
+ * bytes into a large buffer over the standard output file descriptor, bypassing {@link System#out}, and the buffer is
+ * flushed whenever it fills up and periodically by a background thread. Data points are written using the templates
+ * of their generators where possible, and serialized using the object mapper otherwise. Log messages go to standard
+ * error, so they don't end up between data points.
+ *
  * @author Emerson Farrugia
  */
 @Service
+@ConditionalOnExpression("'${output.destination}' == 'console'")
 public class ConsoleDataPointWritingServiceImpl implements DataPointWritingService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConsoleDataPointWritingServiceImpl.class);
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private DataPointTemplates dataPointTemplates;
+
+    @Value("${output.console.buffer-size-in-kb:1024}")
+    private Integer bufferSizeInKb;
+
+    @Value("${output.console.flush-interval-in-ms:1000}")
+    private Long flushIntervalInMs;
+
+    private ObjectWriter objectWriter;
+    private FileChannelOutputStream outputStream;
+    private JsonGenerator generator;
+    private DataPointTemplateWriter templateWriter;
+    private ScheduledExecutorService flushExecutorService;
+    private boolean closed = false;
+
+
+    @PostConstruct
+    public void initializeGenerator() throws IOException {
+
+        // flushing is left to the buffer and the flushing thread, instead of happening after every data point
+        objectWriter = objectMapper.writer().without(FLUSH_AFTER_WRITE_VALUE);
+
+        // the channel of the standard output file descriptor is written to directly, without syncing
+        outputStream = new FileChannelOutputStream(
+                new FileOutputStream(FileDescriptor.out).getChannel(), bufferSizeInKb * 1024, 0, false);
+
+        // the generator is shared by all batches, and must leave standard output open
+        generator = objectMapper.getFactory().createGenerator(outputStream, UTF8);
+        generator.disable(AUTO_CLOSE_TARGET);
+
+        // each data point is terminated by a newline below, instead of being separated by a space
+        generator.setRootValueSeparator(null);
+
+        // the generator is flushed after each data point it serializes, which mustn't flush the stream as well
+        generator.disable(FLUSH_PASSED_TO_STREAM);
+
+        templateWriter = dataPointTemplates.newWriter();
+
+        // data points are flushed periodically, so that they don't sit in the buffer when they're generated slowly
+        flushExecutorService = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("console-flush").setDaemon(true).build());
+
+        flushExecutorService.scheduleWithFixedDelay(this::flushQuietly, flushIntervalInMs, flushIntervalInMs,
+                MILLISECONDS);
+    }
 
     @Override
-    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException {
+    public synchronized long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException {
 
         long written = 0;
 
         for (DataPoint dataPoint : dataPoints) {
-            // trying to use objectMapper.writeValue(System.out) closes the output stream, so doing it this way instead
-            String dataPointAsString = objectMapper.writeValueAsString(dataPoint);
 
-            System.out.println(dataPointAsString);
+            if (!templateWriter.writeLine(dataPoint, outputStream)) {
+
+                objectWriter.writeValue(generator, dataPoint);
+                generator.writeRaw('\n');
+
+                // data points written using templates bypass the generator, so its buffer is drained to keep them in
+                // order
+                generator.flush();
+            }
+
             written++;
         }
 
         return written;
     }
+
+    @Override
+    public synchronized void flush() throws IOException {
+
+        if (!closed) {
+            generator.flush();
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public synchronized long getByteCount() {
+        return outputStream.getByteCount();
+    }
+
+    @Override
+    public synchronized long getIoTimeInNs() {
+        return outputStream.getIoTimeInNs();
+    }
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        }
+        catch (IOException e) {
+            log.warn("The data points written to the console couldn't be flushed.", e);
+        }
+    }
+
+    /**
+     * Stops the flushing thread and flushes the data points that have been written. Standard output is left open.
+     */
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        flushExecutorService.shutdownNow();
+        generator.flush();
+        outputStream.flush();
+        closed = true;
+    }
 }
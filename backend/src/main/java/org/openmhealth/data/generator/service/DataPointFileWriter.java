@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.DataPointAcquisitionProvenance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+
+import static com.fasterxml.jackson.core.JsonEncoding.UTF8;
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.openmhealth.data.generator.service.FileSyncPolicy.REQUEST;
+
+
+/**
+ * A writer of data points to a single file, one JSON object per line. Data points are written using the templates of
+ * their generators where possible, and serialized using the object mapper otherwise. The writer keeps track of the
+ * number of data points it has written and the range of their effective date times. Instances aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class DataPointFileWriter implements Closeable {
+
+    private final FileChannelOutputStream fileOutputStream;
+    private final OutputStream outputStream;
+    private final FileSyncPolicy syncPolicy;
+    private final ObjectWriter objectWriter;
+    private final JsonGenerator generator;
+    private final DataPointTemplateWriter templateWriter;
+    private long dataPointCount = 0;
+    private OffsetDateTime earliestEffectiveDateTime;
+    private OffsetDateTime latestEffectiveDateTime;
+
+
+    /**
+     * @param fileOutputStream the stream of the file
+     * @param outputStream the stream to write data points to, which is either the stream of the file or a stream that
+     * writes to it
+     * @param objectMapper the mapper used to serialize data points
+     * @param syncPolicy the policy that determines when data points are synced to the storage device
+     * @param templateWriter the writer of data points using templates, or null if every data point should be
+     * serialized using the object mapper
+     * @throws IOException if the writer couldn't be created
+     */
+    public DataPointFileWriter(FileChannelOutputStream fileOutputStream, OutputStream outputStream,
+            ObjectMapper objectMapper, FileSyncPolicy syncPolicy, DataPointTemplateWriter templateWriter)
+            throws IOException {
+
+        checkNotNull(fileOutputStream);
+        checkNotNull(outputStream);
+        checkNotNull(objectMapper);
+        checkNotNull(syncPolicy);
+
+        this.fileOutputStream = fileOutputStream;
+        this.outputStream = outputStream;
+        this.syncPolicy = syncPolicy;
+        this.templateWriter = templateWriter;
+
+        // flushing is left to the output stream, instead of happening after every data point
+        this.objectWriter = objectMapper.writer().without(FLUSH_AFTER_WRITE_VALUE);
+
+        // data points are serialized straight to UTF-8 bytes, without building an intermediate string per data point
+        this.generator = objectMapper.getFactory().createGenerator(outputStream, UTF8);
+
+        // each data point is terminated by a newline below, instead of being separated by a space
+        this.generator.setRootValueSeparator(null);
+
+        // the generator is flushed after each data point it serializes, which mustn't flush the stream as well
+        this.generator.disable(FLUSH_PASSED_TO_STREAM);
+    }
+
+    public void write(DataPoint dataPoint) throws IOException {
+
+        // this simplifies direct imports into MongoDB
+        dataPoint.setAdditionalProperty("id", dataPoint.getHeader().getId());
+
+        if (templateWriter == null || !templateWriter.writeLine(dataPoint, outputStream)) {
+
+            objectWriter.writeValue(generator, dataPoint);
+            generator.writeRaw('\n');
+
+            // data points written using templates bypass the generator, so its buffer is drained to keep them in order
+            if (templateWriter != null) {
+                generator.flush();
+            }
+        }
+
+        dataPointCount++;
+
+        DataPointAcquisitionProvenance acquisitionProvenance = dataPoint.getHeader().getAcquisitionProvenance();
+
+        // the generators set the source creation date time to the end of the effective time frame
+        if (acquisitionProvenance != null && acquisitionProvenance.getSourceCreationDateTime() != null) {
+
+            OffsetDateTime effectiveDateTime = acquisitionProvenance.getSourceCreationDateTime();
+
+            if (earliestEffectiveDateTime == null || effectiveDateTime.isBefore(earliestEffectiveDateTime)) {
+                earliestEffectiveDateTime = effectiveDateTime;
+            }
+
+            if (latestEffectiveDateTime == null || effectiveDateTime.isAfter(latestEffectiveDateTime)) {
+                latestEffectiveDateTime = effectiveDateTime;
+            }
+        }
+    }
+
+    /**
+     * @return the number of data points that have been written
+     */
+    public long getDataPointCount() {
+        return dataPointCount;
+    }
+
+    /**
+     * @return the number of bytes that have been written to the file, after compression, including those that are
+     * still buffered. Bytes held by a compressor aren't included.
+     */
+    public long getByteCount() {
+        return fileOutputStream.getByteCount();
+    }
+
+    /**
+     * @return the time spent writing to the file and syncing it, in nanoseconds
+     */
+    public long getIoTimeInNs() {
+        return fileOutputStream.getIoTimeInNs();
+    }
+
+    /**
+     * @return the earliest effective end date time of the data points that have been written, or null if none have
+     */
+    public OffsetDateTime getEarliestEffectiveDateTime() {
+        return earliestEffectiveDateTime;
+    }
+
+    /**
+     * @return the latest effective end date time of the data points that have been written, or null if none have
+     */
+    public OffsetDateTime getLatestEffectiveDateTime() {
+        return latestEffectiveDateTime;
+    }
+
+    /**
+     * Hands the data points that have been written to the operating system, syncing them to the storage device if the
+     * sync policy requires it. When compressing using gzip, the data points in the partial block of the compressor are
+     * only handed over once the block fills up or the file is closed.
+     */
+    public void flush() throws IOException {
+
+        generator.flush();
+
+        // compressors hand what they've compressed to the file, although gzip keeps its partial block until it fills up
+        outputStream.flush();
+
+        if (syncPolicy == REQUEST) {
+            fileOutputStream.sync();
+        }
+    }
+
+    /**
+     * Closes the file, syncing it unless the sync policy is none.
+     */
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -16,7 +16,10 @@
 
 package org.openmhealth.data.generator.service;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.random.RandomGenerators;
 import org.openmhealth.schema.domain.omh.DataPoint;
 import org.openmhealth.schema.domain.omh.Measure;
 
@@ -44,8 +47,35 @@ public interface DataPointGenerator<T extends Measure> {
     Set<String> getSupportedValueGroupKeys();
 
     /**
-     * @param valueGroups a list of value groups, where each value group corresponds to a data point
-     * @return the list of generated data points
+     * @param valueGroups an iterable of value groups, where each value group corresponds to a data point
+     * @return an iterable of generated data points, each of which is created as the iterable is traversed
      */
-    Iterable<DataPoint<T>> generateDataPoints(Iterable<TimestampedValueGroup> valueGroups);
+    default Iterable<DataPoint<T>> generateDataPoints(Iterable<TimestampedValueGroup> valueGroups) {
+        return generateDataPoints(valueGroups, RandomGenerators.current());
+    }
+
+    /**
+     * @param valueGroups an iterable of value groups, where each value group corresponds to a data point
+     * @param randomGenerator the random number generator used to generate data point identifiers
+     * @return an iterable of generated data points, each of which is created as the iterable is traversed
+     */
+    Iterable<DataPoint<T>> generateDataPoints(Iterable<TimestampedValueGroup> valueGroups,
+            RandomGenerator randomGenerator);
+
+    /**
+     * @param batch a batch of value groups, where each row corresponds to a data point
+     * @param userId the user to associate the data points with, or null if the configured user should be used
+     * @param randomGenerator the random number generator used to generate data point identifiers
+     * @return an iterable of generated data points in row order, each of which is created as the iterable is traversed
+     */
+    Iterable<DataPoint<T>> generateDataPoints(TimestampedValueGroupBatch batch, String userId,
+            RandomGenerator randomGenerator);
+
+    /**
+     * @return the definition of the template the data points of this generator are written with as JSON, or null if
+     * they should be serialized using the object mapper
+     */
+    default DataPointTemplateDefinition<T> getTemplateDefinition() {
+        return null;
+    }
 }
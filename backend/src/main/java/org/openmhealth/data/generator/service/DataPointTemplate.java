@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A compiled template of the JSON of data points of a single shape. The template alternates between constant
+ * segments, pre-encoded as UTF-8 bytes, and slots, whose values are rendered as each data point is written.
+ * Instances are immutable.
+ *
+ * @author Emerson Farrugia
+ */
+class DataPointTemplate {
+
+    private final byte[][] segments;
+    private final int[] slotIndices;
+    private final int additionalPropertyCount;
+
+
+    /**
+     * @param segments the constant segments, one more than there are slots to fill
+     * @param slotIndices the index of the slot whose value goes after each segment but the last, in the order of
+     * the slots of the template definition
+     * @param additionalPropertyCount the number of additional properties the data points have
+     */
+    DataPointTemplate(byte[][] segments, int[] slotIndices, int additionalPropertyCount) {
+
+        checkNotNull(segments);
+        checkNotNull(slotIndices);
+        checkArgument(segments.length == slotIndices.length + 1);
+
+        this.segments = segments;
+        this.slotIndices = slotIndices;
+        this.additionalPropertyCount = additionalPropertyCount;
+    }
+
+    /**
+     * @return the number of additional properties a data point must have to be written with this template
+     */
+    int getAdditionalPropertyCount() {
+        return additionalPropertyCount;
+    }
+
+    /**
+     * @param values the values of the slots of the data point, in the order of the slots of the template definition
+     * @param writer the writer to append the JSON of the data point to
+     */
+    void write(Object[] values, DataPointTemplateWriter writer) {
+
+        for (int i = 0; i < slotIndices.length; i++) {
+            writer.append(segments[i]);
+            writer.appendValue(values[slotIndices[i]]);
+        }
+
+        writer.append(segments[slotIndices.length]);
+    }
+}
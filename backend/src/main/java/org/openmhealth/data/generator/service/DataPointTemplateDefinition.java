@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.Measure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The definition of the template a generator's data points are written with. The definition lists the slots of the
+ * template, i.e. the values that vary from one data point to the next, each identified by the path of its field in
+ * the JSON written by the object mapper, e.g. "body.body_weight.value". Every other value in that JSON is assumed to
+ * be the same for all data points of the same shape.
+ *
+ * <p>
+ * A slot whose value is null is assumed to be absent from the JSON, so optional fields are declared as slots, and
+ * data points that differ in which slots are null are written with different templates.
+ *
+ * @author Emerson Farrugia
+ */
+public class DataPointTemplateDefinition<T extends Measure> {
+
+    /**
+     * A value that varies from one data point to the next.
+     */
+    public static class Slot<T extends Measure> {
+
+        private final String path;
+        private final Function<DataPoint<T>, ?> valueFunction;
+
+        private Slot(String path, Function<DataPoint<T>, ?> valueFunction) {
+
+            this.path = path;
+            this.valueFunction = valueFunction;
+        }
+
+        /**
+         * @return the path of the field, made up of the names of the fields leading to it, separated by dots
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @param dataPoint a data point
+         * @return the value of the field in the data point, or null if the field is absent
+         */
+        public Object getValue(DataPoint<T> dataPoint) {
+            return valueFunction.apply(dataPoint);
+        }
+    }
+
+    private final Class<T> measureType;
+    private final List<Slot<T>> slots = new ArrayList<>();
+
+
+    /**
+     * @param measureType the type of the measures in the data points
+     */
+    public DataPointTemplateDefinition(Class<T> measureType) {
+
+        checkNotNull(measureType);
+        this.measureType = measureType;
+    }
+
+    public Class<T> getMeasureType() {
+        return measureType;
+    }
+
+    public List<Slot<T>> getSlots() {
+        return Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * @param path the path of the field
+     * @param valueFunction a function returning the value of the field in a data point, or null if it's absent
+     * @return this definition
+     */
+    public DataPointTemplateDefinition<T> addSlot(String path, Function<DataPoint<T>, ?> valueFunction) {
+
+        checkNotNull(path);
+        checkNotNull(valueFunction);
+        checkArgument(slots.size() < Long.SIZE, "A template can't have more than %s slots.", Long.SIZE);
+
+        for (Slot<T> slot : slots) {
+            checkArgument(!slot.getPath().equals(path), "The path '%s' already has a slot.", path);
+        }
+
+        slots.add(new Slot<>(path, valueFunction));
+
+        return this;
+    }
+
+    /**
+     * @param path the path of the field
+     * @param valueFunction a function returning the value of the field given the measure of a data point
+     * @return this definition
+     */
+    public DataPointTemplateDefinition<T> addBodySlot(String path, Function<T, ?> valueFunction) {
+
+        checkNotNull(valueFunction);
+
+        return addSlot(path, dataPoint -> valueFunction.apply(dataPoint.getBody()));
+    }
+
+    /**
+     * @param dataPoint a data point
+     * @param values the array to store the value of each slot in, in slot order
+     * @return a bit mask of the slots whose values are null, which identifies the shape of the data point
+     */
+    public long getValues(DataPoint<T> dataPoint, Object[] values) {
+
+        long nullSlotMask = 0;
+
+        for (int i = 0; i < slots.size(); i++) {
+
+            values[i] = slots.get(i).getValue(dataPoint);
+
+            if (values[i] == null) {
+                nullSlotMask |= 1L << i;
+            }
+        }
+
+        return nullSlotMask;
+    }
+}
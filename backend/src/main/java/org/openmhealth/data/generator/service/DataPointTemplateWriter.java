@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.openmhealth.data.generator.serializer.IsoOffsetDateTimeFormatter;
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A writer of data points as JSON using the templates compiled for their generators. Each data point is rendered
+ * into a buffer that's reused from one data point to the next, and written to the output stream in a single call.
+ * Instances aren't thread-safe, so each output stream gets a writer of its own.
+ *
+ * @author Emerson Farrugia
+ */
+public class DataPointTemplateWriter {
+
+    private final DataPointTemplates templates;
+    private final Object[] values = new Object[Long.SIZE];
+    private final IsoOffsetDateTimeFormatter dateTimeFormatter = new IsoOffsetDateTimeFormatter();
+    private byte[] buffer = new byte[1024];
+    private int length = 0;
+
+    // the template used last is kept, since consecutive data points usually come from the same generator
+    private DataPointTemplateDefinition<?> lastDefinition;
+    private long lastNullSlotMask;
+    private DataPointTemplate lastTemplate;
+
+
+    DataPointTemplateWriter(DataPointTemplates templates) {
+
+        checkNotNull(templates);
+        this.templates = templates;
+    }
+
+    /**
+     * Writes a data point followed by a newline, if it can be written using a template.
+     *
+     * @param dataPoint the data point to write
+     * @param outputStream the stream to write the data point to
+     * @return true if the data point has been written, false if it has no template and must be written using the
+     * object mapper instead
+     * @throws IOException if the data point couldn't be written to the stream
+     */
+    @SuppressWarnings("unchecked")
+    public boolean writeLine(DataPoint<?> dataPoint, OutputStream outputStream) throws IOException {
+
+        DataPointTemplateDefinition definition = templates.getDefinition(dataPoint);
+
+        if (definition == null) {
+            return false;
+        }
+
+        long nullSlotMask = definition.getValues(dataPoint, values);
+
+        if (definition != lastDefinition || nullSlotMask != lastNullSlotMask) {
+            lastTemplate = templates.getTemplate(definition, nullSlotMask, (DataPoint) dataPoint, values);
+            lastDefinition = definition;
+            lastNullSlotMask = nullSlotMask;
+        }
+
+        if (lastTemplate == null
+                || dataPoint.getAdditionalProperties().size() != lastTemplate.getAdditionalPropertyCount()) {
+            return false;
+        }
+
+        reset();
+        lastTemplate.write(values, this);
+        append((byte) '\n');
+
+        outputStream.write(buffer, 0, length);
+
+        return true;
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    /**
+     * @return the bytes rendered so far, which is used to verify templates as they're compiled
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    void append(byte[] bytes) {
+
+        ensureCapacity(bytes.length);
+
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    void append(byte value) {
+
+        ensureCapacity(1);
+
+        buffer[length++] = value;
+    }
+
+    /**
+     * Appends a value the way the object mapper writes it.
+     *
+     * @param value a string, date time or number
+     */
+    void appendValue(Object value) {
+
+        if (value instanceof String) {
+            appendString((String) value);
+        }
+        else if (value instanceof OffsetDateTime) {
+            appendDateTime((OffsetDateTime) value);
+        }
+        else if (value instanceof BigDecimal || value instanceof Long || value instanceof Integer
+                || value instanceof Double || value instanceof Float) {
+            appendAscii(value.toString());
+        }
+        else {
+            throw new IllegalArgumentException("A value of type " + (value == null ? null : value.getClass())
+                    + " can't be written using a template.");
+        }
+    }
+
+    private void appendString(String value) {
+
+        ensureCapacity(value.length() + 2);
+
+        int start = length;
+
+        buffer[length++] = '"';
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            // anything that might need escaping or encoding is left to the encoder of the object mapper
+            if (c < 0x20 || c >= 0x7f || c == '"' || c == '\\') {
+                length = start;
+                append((byte) '"');
+                append(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+                append((byte) '"');
+                return;
+            }
+
+            buffer[length++] = (byte) c;
+        }
+
+        buffer[length++] = '"';
+    }
+
+    private void appendDateTime(OffsetDateTime value) {
+
+        int dateTimeLength = dateTimeFormatter.format(value);
+        char[] dateTimeChars = dateTimeFormatter.getBuffer();
+
+        ensureCapacity(dateTimeLength + 2);
+
+        buffer[length++] = '"';
+
+        for (int i = 0; i < dateTimeLength; i++) {
+            buffer[length++] = (byte) dateTimeChars[i];
+        }
+
+        buffer[length++] = '"';
+    }
+
+    private void appendAscii(String value) {
+
+        ensureCapacity(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int additionalLength) {
+
+        if (length + additionalLength > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additionalLength));
+        }
+    }
+}
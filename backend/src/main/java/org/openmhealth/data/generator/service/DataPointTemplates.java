@@ -0,0 +1,410 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.Measure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.fasterxml.jackson.core.JsonEncoding.UTF8;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * The templates data points are written with as JSON, instead of serializing each data point using the object mapper.
+ * Most of the JSON of a data point is the same for every data point of a generator, e.g. the schema identifier, the
+ * source name, the modality and the units. A template pre-encodes those parts, and only the values declared in the
+ * {@link DataPointTemplateDefinition} of the generator are rendered for each data point.
+ *
+ * <p>
+ * A template is compiled the first time a data point of its shape is written, by serializing that data point using
+ * the object mapper, locating the declared values in the output, and keeping the bytes in between. The template is
+ * then checked by rendering the same data point with it, so data points whose template can't be compiled or doesn't
+ * reproduce the output of the object mapper exactly are written using the object mapper instead.
+ *
+ * @author Emerson Farrugia
+ */
+@Component
+public class DataPointTemplates {
+
+    private static final Logger log = LoggerFactory.getLogger(DataPointTemplates.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<DataPointGenerator> dataPointGenerators = new ArrayList<>();
+
+    @Value("${output.json-templates:true}")
+    private Boolean enabled;
+
+    private final Map<Class<?>, DataPointTemplateDefinition<?>> definitions = new HashMap<>();
+    private final Map<DataPointTemplateDefinition<?>, Map<Long, Optional<DataPointTemplate>>> templates =
+            new ConcurrentHashMap<>();
+
+
+    @PostConstruct
+    public void initializeDefinitions() throws IOException {
+
+        if (!enabled) {
+            return;
+        }
+
+        if (!isDateTimeFormatSupported()) {
+            log.warn("The object mapper doesn't write date times in ISO 8601 format, so data points are written "
+                    + "without templates.");
+            return;
+        }
+
+        for (DataPointGenerator<?> generator : dataPointGenerators) {
+
+            DataPointTemplateDefinition<?> definition = generator.getTemplateDefinition();
+
+            if (definition != null) {
+                definitions.put(definition.getMeasureType(), definition);
+                templates.put(definition, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    /**
+     * @return true if the object mapper writes date times the way a template does, false otherwise
+     */
+    private boolean isDateTimeFormatSupported() throws IOException {
+
+        // the date times cover zero seconds, which a plain toString() would omit, fractions of a second with leading
+        // and trailing zeros, and offsets
+        List<OffsetDateTime> dateTimes = Arrays.asList(
+                OffsetDateTime.of(2016, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC),
+                OffsetDateTime.of(2016, 6, 30, 23, 59, 59, 500_000_000, ZoneOffset.ofHours(-5)),
+                OffsetDateTime.of(2016, 6, 30, 23, 59, 59, 1_200, ZoneOffset.ofHours(-5)),
+                OffsetDateTime.of(2016, 12, 31, 0, 30, 15, 123_456_789, ZoneOffset.ofHoursMinutes(5, 30)));
+
+        DataPointTemplateWriter writer = newWriter();
+
+        for (OffsetDateTime dateTime : dateTimes) {
+
+            writer.reset();
+            writer.appendValue(dateTime);
+
+            if (!Arrays.equals(writer.toByteArray(), objectMapper.writeValueAsBytes(dateTime))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return a new writer of data points using these templates
+     */
+    public DataPointTemplateWriter newWriter() {
+        return new DataPointTemplateWriter(this);
+    }
+
+    /**
+     * @param dataPoint a data point
+     * @return the template definition of the measure of the data point, or null if it has none
+     */
+    DataPointTemplateDefinition<?> getDefinition(DataPoint<?> dataPoint) {
+        return definitions.get(dataPoint.getBody().getClass());
+    }
+
+    /**
+     * @param definition the template definition of the measure of the data point
+     * @param nullSlotMask the bit mask of the slots whose values are null in the data point
+     * @param dataPoint a data point, which is used to compile the template if it doesn't exist
+     * @param values the values of the slots of the data point
+     * @return the template of data points of the same shape, or null if there is none
+     */
+    <T extends Measure> DataPointTemplate getTemplate(DataPointTemplateDefinition<T> definition, long nullSlotMask,
+            DataPoint<T> dataPoint, Object[] values) {
+
+        return templates.get(definition)
+                .computeIfAbsent(nullSlotMask, mask -> compileTemplate(definition, dataPoint, values))
+                .orElse(null);
+    }
+
+    private <T extends Measure> Optional<DataPointTemplate> compileTemplate(DataPointTemplateDefinition<T> definition,
+            DataPoint<T> dataPoint, Object[] values) {
+
+        try {
+            DataPointTemplate template = newTemplate(definition, dataPoint, values);
+
+            log.debug("A template has been compiled for '{}' data points.",
+                    definition.getMeasureType().getSimpleName());
+
+            return Optional.of(template);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("A template couldn't be compiled for '{}' data points, so they're written using the object "
+                    + "mapper instead.", definition.getMeasureType().getSimpleName(), e);
+
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A scalar value written by the object mapper, and the range of bytes it was written to. The range includes any
+     * separator written before the value.
+     */
+    private static class WrittenValue {
+
+        private final String path;
+        private final int start;
+        private final int end;
+
+        private WrittenValue(String path, int start, int end) {
+
+            this.path = path;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A generator that records the path and the range of bytes of each scalar value it writes.
+     */
+    private static class RecordingJsonGenerator extends JsonGeneratorDelegate {
+
+        private final ByteArrayOutputStream outputStream;
+        private final List<WrittenValue> writtenValues = new ArrayList<>();
+        private int start;
+
+        private RecordingJsonGenerator(JsonGenerator generator, ByteArrayOutputStream outputStream) {
+
+            super(generator, false);
+            this.outputStream = outputStream;
+        }
+
+        private void beforeValue() throws IOException {
+
+            delegate.flush();
+            start = outputStream.size();
+        }
+
+        private void afterValue() throws IOException {
+
+            delegate.flush();
+
+            // the context of a value in an object is named after the field it's written to
+            Deque<String> names = new ArrayDeque<>();
+
+            for (JsonStreamContext context = getOutputContext(); !context.inRoot(); context = context.getParent()) {
+                names.addFirst(context.inObject() ? context.getCurrentName() : "[" + context.getCurrentIndex() + "]");
+            }
+
+            writtenValues.add(new WrittenValue(String.join(".", names), start, outputStream.size()));
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+
+            beforeValue();
+            delegate.writeString(text);
+            afterValue();
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+
+            beforeValue();
+            delegate.writeString(text, offset, len);
+            afterValue();
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+
+            beforeValue();
+            delegate.writeString(text);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(int value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(long value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(BigInteger value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(double value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(float value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(BigDecimal value) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(value);
+            afterValue();
+        }
+
+        @Override
+        public void writeNumber(String encodedValue) throws IOException {
+
+            beforeValue();
+            delegate.writeNumber(encodedValue);
+            afterValue();
+        }
+    }
+
+    /**
+     * Compiles a template by serializing a data point using the object mapper, and splitting the output at the
+     * values of the slots of the data point.
+     */
+    private <T extends Measure> DataPointTemplate newTemplate(DataPointTemplateDefinition<T> definition,
+            DataPoint<T> dataPoint, Object[] values) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        RecordingJsonGenerator generator = new RecordingJsonGenerator(
+                objectMapper.getFactory().createGenerator(outputStream, UTF8), outputStream);
+
+        objectMapper.writer().writeValue(generator, dataPoint);
+        generator.flush();
+
+        byte[] json = outputStream.toByteArray();
+
+        List<DataPointTemplateDefinition.Slot<T>> slots = definition.getSlots();
+        DataPointTemplateWriter writer = newWriter();
+
+        // the position of the rendered value of each slot present in the data point, in the order of the output
+        SortedMap<Integer, Integer> slotIndicesByStart = new TreeMap<>();
+        Map<Integer, Integer> slotEndsByStart = new HashMap<>();
+
+        for (int i = 0; i < slots.size(); i++) {
+
+            String path = slots.get(i).getPath();
+            WrittenValue writtenValue = null;
+
+            for (WrittenValue candidate : generator.writtenValues) {
+                if (candidate.path.equals(path)) {
+                    if (writtenValue != null) {
+                        throw new IllegalStateException("The path '" + path + "' has been written more than once.");
+                    }
+
+                    writtenValue = candidate;
+                }
+            }
+
+            if (values[i] == null) {
+                if (writtenValue != null) {
+                    throw new IllegalStateException("The path '" + path + "' has been written, but its value is null.");
+                }
+
+                continue;
+            }
+
+            if (writtenValue == null) {
+                throw new IllegalStateException("The path '" + path + "' hasn't been written.");
+            }
+
+            writer.reset();
+            writer.appendValue(values[i]);
+
+            // the rendered value must match the end of the written value, which may be preceded by a separator
+            byte[] renderedValue = writer.toByteArray();
+            int start = writtenValue.end - renderedValue.length;
+
+            if (start < writtenValue.start
+                    || !Arrays.equals(renderedValue, Arrays.copyOfRange(json, start, writtenValue.end))) {
+                throw new IllegalStateException("The value of path '" + path + "' has been written as '"
+                        + new String(json, writtenValue.start, writtenValue.end - writtenValue.start, UTF_8)
+                        + "', which doesn't match its rendered value '" + new String(renderedValue, UTF_8) + "'.");
+            }
+
+            slotIndicesByStart.put(start, i);
+            slotEndsByStart.put(start, writtenValue.end);
+        }
+
+        byte[][] segments = new byte[slotIndicesByStart.size() + 1][];
+        int[] slotIndices = new int[slotIndicesByStart.size()];
+        int segmentStart = 0;
+        int segmentIndex = 0;
+
+        for (Map.Entry<Integer, Integer> entry : slotIndicesByStart.entrySet()) {
+
+            segments[segmentIndex] = Arrays.copyOfRange(json, segmentStart, entry.getKey());
+            slotIndices[segmentIndex] = entry.getValue();
+            segmentStart = slotEndsByStart.get(entry.getKey());
+            segmentIndex++;
+        }
+
+        segments[segmentIndex] = Arrays.copyOfRange(json, segmentStart, json.length);
+
+        DataPointTemplate template =
+                new DataPointTemplate(segments, slotIndices, dataPoint.getAdditionalProperties().size());
+
+        // the template must reproduce the data point it was compiled from
+        writer.reset();
+        template.write(values, writer);
+
+        if (!Arrays.equals(writer.toByteArray(), json)) {
+            throw new IllegalStateException("The template doesn't reproduce the data point it was compiled from.");
+        }
+
+        return template;
+    }
+}
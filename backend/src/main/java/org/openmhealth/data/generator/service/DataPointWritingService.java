@@ -20,14 +20,58 @@ import org.openmhealth.schema.domain.omh.DataPoint;
 
 
 /**
+ * A service that writes data points. Implementations must be thread-safe, since requests generated concurrently
+ * write their data points through the same service.
+ *
  * @author Emerson Farrugia
  */
 public interface DataPointWritingService {
 
     /**
-     * @param dataPoints the data points to write
+     * @param dataPoints the data points to write, which are traversed exactly once
      * @return the number of data points that have been written
      * @throws Exception if an error occurred while writing data points
      */
     long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws Exception;
+
+    /**
+     * @return true if this service writes the batches of concurrent callers in parallel, in which case the batches
+     * shouldn't be funnelled through a single writer thread, false otherwise
+     */
+    default boolean isWritingConcurrently() {
+        return false;
+    }
+
+    /**
+     * Flushes the data points that have been written so far. This is called once a measure generation request has
+     * written all its data points.
+     *
+     * @throws Exception if an error occurred while flushing data points
+     */
+    default void flush() throws Exception {
+    }
+
+    /**
+     * @return the number of bytes that have been written so far, or 0 if this service doesn't count them
+     */
+    default long getByteCount() {
+        return 0;
+    }
+
+    /**
+     * @return the time spent so far writing bytes to the operating system and syncing them, in nanoseconds, or 0 if
+     * this service doesn't measure it
+     */
+    default long getIoTimeInNs() {
+        return 0;
+    }
+
+    /**
+     * Flushes the data points that have been written and releases any resources held by this service. No data points
+     * can be written once this is called.
+     *
+     * @throws Exception if an error occurred while closing the service
+     */
+    default void close() throws Exception {
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.openmhealth.data.generator.metrics.SyncEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * An output stream that buffers bytes in a direct buffer and writes them to a file channel when the buffer fills up
+ * or when the stream is flushed. Since the buffer is direct, the channel doesn't copy it again before writing, and a
+ * large buffer keeps the number of system calls low. Instances aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class FileChannelOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long syncIntervalInBytes;
+    private final boolean syncOnClose;
+    private long bytesWrittenSinceSync = 0;
+    private long byteCount = 0;
+    private long ioTimeInNs = 0;
+
+
+    /**
+     * @param channel the channel to write to
+     * @param bufferSize the size of the buffer in bytes
+     * @param syncIntervalInBytes the number of bytes after which written bytes are synced to the storage device, or
+     * zero if bytes should only be synced when {@link #sync()} is called
+     * @param syncOnClose true if written bytes should be synced to the storage device when the stream is closed
+     */
+    public FileChannelOutputStream(FileChannel channel, int bufferSize, long syncIntervalInBytes,
+            boolean syncOnClose) {
+
+        checkNotNull(channel);
+        checkArgument(bufferSize > 0);
+        checkArgument(syncIntervalInBytes >= 0);
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.syncIntervalInBytes = syncIntervalInBytes;
+        this.syncOnClose = syncOnClose;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        if (!buffer.hasRemaining()) {
+            drainBuffer();
+        }
+
+        buffer.put((byte) b);
+        byteCount++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drainBuffer();
+            }
+
+            int chunkLength = Math.min(length, buffer.remaining());
+
+            buffer.put(bytes, offset, chunkLength);
+            byteCount += chunkLength;
+            offset += chunkLength;
+            length -= chunkLength;
+        }
+    }
+
+    /**
+     * @return the number of bytes written to this stream, including those that are still buffered
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the time spent writing to the channel and syncing it, in nanoseconds
+     */
+    public long getIoTimeInNs() {
+        return ioTimeInNs;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel, handing them to the operating system without syncing them to the
+     * storage device.
+     */
+    @Override
+    public void flush() throws IOException {
+        drainBuffer();
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and syncs them to the storage device.
+     */
+    public void sync() throws IOException {
+
+        drainBuffer();
+        force();
+    }
+
+    private void drainBuffer() throws IOException {
+
+        long startTimeInNs = System.nanoTime();
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            bytesWrittenSinceSync += channel.write(buffer);
+        }
+
+        buffer.clear();
+
+        ioTimeInNs += System.nanoTime() - startTimeInNs;
+
+        if (syncIntervalInBytes > 0 && bytesWrittenSinceSync >= syncIntervalInBytes) {
+            force();
+        }
+    }
+
+    private void force() throws IOException {
+
+        SyncEvent event = new SyncEvent();
+        event.begin();
+
+        long startTimeInNs = System.nanoTime();
+
+        channel.force(false);
+
+        if (event.shouldCommit()) {
+            event.setByteCount(bytesWrittenSinceSync);
+            event.commit();
+        }
+
+        bytesWrittenSinceSync = 0;
+
+        ioTimeInNs += System.nanoTime() - startTimeInNs;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (!channel.isOpen()) {
+            return;
+        }
+
+        try {
+            drainBuffer();
+
+            if (syncOnClose) {
+                force();
+            }
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.common.base.Enums;
+import com.google.common.base.Optional;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The formats files can be compressed in as they're written.
+ *
+ * @author Emerson Farrugia
+ */
+public enum FileCompression {
+
+    NONE {
+        @Override
+        public OutputStream newOutputStream(OutputStream outputStream, Integer level, int threads) {
+            return outputStream;
+        }
+    },
+
+    /**
+     * Gzip, compressed in blocks on several threads. The file consists of several gzip members.
+     */
+    GZIP {
+        @Override
+        public OutputStream newOutputStream(OutputStream outputStream, Integer level, int threads) {
+            return new ParallelGzipOutputStream(outputStream, level != null ? level : Deflater.DEFAULT_COMPRESSION,
+                    threads);
+        }
+    },
+
+    /**
+     * Zstandard, which compresses better and faster than gzip, using its own worker threads.
+     */
+    ZSTD {
+        @Override
+        public OutputStream newOutputStream(OutputStream outputStream, Integer level, int threads)
+                throws IOException {
+
+            ZstdOutputStream zstdOutputStream = new ZstdOutputStream(outputStream, level != null ? level : 3);
+
+            if (threads > 1) {
+                zstdOutputStream.setWorkers(threads);
+            }
+
+            return zstdOutputStream;
+        }
+    },
+
+    /**
+     * The LZ4 frame format, which compresses less than the other formats but is the fastest. The level and thread
+     * count are ignored.
+     */
+    LZ4 {
+        @Override
+        public OutputStream newOutputStream(OutputStream outputStream, Integer level, int threads)
+                throws IOException {
+            return new LZ4FrameOutputStream(outputStream);
+        }
+    };
+
+    /**
+     * @param outputStream the stream to write compressed bytes to
+     * @param level the compression level, or null for the default level of the format
+     * @param threads the number of threads to compress on, where supported
+     * @return a stream that compresses the bytes written to it in this format
+     * @throws IOException if the stream couldn't be created
+     */
+    public abstract OutputStream newOutputStream(OutputStream outputStream, Integer level, int threads)
+            throws IOException;
+
+    /**
+     * @param name a name in the form used in configuration files, e.g. "gzip"
+     * @return the corresponding format
+     */
+    public static FileCompression forName(String name) {
+
+        checkNotNull(name);
+
+        Optional<FileCompression> compression =
+                Enums.getIfPresent(FileCompression.class, name.trim().toUpperCase(Locale.ROOT));
+        checkArgument(compression.isPresent(), "The file compression format '%s' isn't supported.", name);
+
+        return compression.get();
+    }
+}
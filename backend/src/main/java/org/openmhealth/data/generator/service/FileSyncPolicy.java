@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.google.common.base.Enums;
+import com.google.common.base.Optional;
+
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * The policies that determine when data points written to a file are synced to the storage device.
+ *
+ * @author Emerson Farrugia
+ */
+public enum FileSyncPolicy {
+
+    /**
+     * Data points are only synced by the operating system. This is the fastest policy.
+     */
+    NONE,
+
+    /**
+     * Data points are synced after each measure generation request has written them, and when the file is closed.
+     */
+    REQUEST,
+
+    /**
+     * Data points are synced every time a configured number of bytes has been written, and when the file is closed.
+     */
+    SIZE;
+
+    /**
+     * @param name a name in the form used in configuration files, e.g. "request"
+     * @return the corresponding policy
+     */
+    public static FileSyncPolicy forName(String name) {
+
+        checkNotNull(name);
+
+        Optional<FileSyncPolicy> policy =
+                Enums.getIfPresent(FileSyncPolicy.class, name.trim().toUpperCase(Locale.ROOT));
+        checkArgument(policy.isPresent(), "The file sync policy '%s' isn't supported.", name);
+
+        return policy.get();
+    }
+}
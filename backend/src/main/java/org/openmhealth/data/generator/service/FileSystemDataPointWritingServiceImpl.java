@@ -16,65 +16,92 @@
 
 package org.openmhealth.data.generator.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.openmhealth.schema.domain.omh.DataPoint;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 
 /**
+ * A service that writes data points to a file, one JSON object per line. The file is opened when the first data
+ * points are written and kept open until the service is closed.
+ *
  * @author Emerson Farrugia
  */
 @Service
 @Primary
 @ConditionalOnExpression("'${output.destination}' == 'file'")
-public class FileSystemDataPointWritingServiceImpl implements DataPointWritingService {
-
-    @Value("${output.file.filename:output.json}")
-    private String filename;
+public class FileSystemDataPointWritingServiceImpl extends AbstractFileDataPointWritingServiceImpl {
 
-    @Value("${output.file.append:true}")
-    private Boolean append;
+    private DataPointFileWriter writer;
+    private long closedByteCount = 0;
+    private long closedIoTimeInNs = 0;
 
-    @Autowired
-    private ObjectMapper objectMapper;
 
     @PostConstruct
     public void clearFile() throws IOException {
 
-        if (!append) {
-            Files.deleteIfExists(Paths.get(filename));
+        if (!isAppend()) {
+            Files.deleteIfExists(Paths.get(getFilename()));
         }
     }
 
     @Override
-    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException {
+    public synchronized long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException {
+
+        if (writer == null) {
+            writer = newDataPointFileWriter(Paths.get(getFilename()));
+        }
 
         long written = 0;
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
+        for (DataPoint<?> dataPoint : dataPoints) {
+            writer.write(dataPoint);
+            written++;
+        }
+
+        return written;
+    }
 
-            for (DataPoint dataPoint : dataPoints) {
-                // this simplifies direct imports into MongoDB
-                dataPoint.setAdditionalProperty("id", dataPoint.getHeader().getId());
+    @Override
+    public synchronized void flush() throws IOException {
 
-                String valueAsString = objectMapper.writeValueAsString(dataPoint);
-                writer.write(valueAsString);
-                writer.write("\n");
-                written++;
-            }
+        if (writer != null) {
+            writer.flush();
         }
+    }
 
-        return written;
+    @Override
+    public synchronized long getByteCount() {
+        return closedByteCount + (writer != null ? writer.getByteCount() : 0);
+    }
+
+    @Override
+    public synchronized long getIoTimeInNs() {
+        return closedIoTimeInNs + (writer != null ? writer.getIoTimeInNs() : 0);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        }
+        finally {
+            closedByteCount += writer.getByteCount();
+            closedIoTimeInNs += writer.getIoTimeInNs();
+            writer = null;
+        }
     }
 }
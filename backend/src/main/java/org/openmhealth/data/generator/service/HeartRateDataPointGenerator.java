@@ -16,13 +16,17 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.HeartRate;
+import org.openmhealth.schema.domain.omh.TypedUnitValue;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
+import static org.openmhealth.schema.domain.omh.HeartRateUnit.BEATS_PER_MINUTE;
 
 
 /**
@@ -49,10 +53,19 @@ public class HeartRateDataPointGenerator extends AbstractDataPointGeneratorImpl<
     }
 
     @Override
-    public HeartRate newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<HeartRate> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        return new HeartRate.Builder(valueGroup.getValue(RATE_KEY))
-                .setEffectiveTimeFrame(valueGroup.getTimestamp())
+        IntFunction<BigDecimal> rates = batch.getDecimalColumn(RATE_KEY);
+
+        return row -> new HeartRate.Builder(new TypedUnitValue<>(BEATS_PER_MINUTE, rates.apply(row)))
+                .setEffectiveTimeFrame(batch.getTimestamp(row))
                 .build();
     }
+
+    @Override
+    protected DataPointTemplateDefinition<HeartRate> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(HeartRate.class)
+                .addBodySlot("body.heart_rate.value", measure -> measure.getHeartRate().getValue());
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.openmhealth.data.generator.domain.DataPointBatch;
+import org.openmhealth.data.generator.metrics.FlushEvent;
+import org.openmhealth.data.generator.metrics.GeneratorMetrics;
+import org.openmhealth.data.generator.metrics.RunMetrics;
+import org.openmhealth.data.generator.metrics.WriteBatchEvent;
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A writing service that measures the work of the service it decorates, and attributes it to the generator of each
+ * {@link DataPointBatch}. The time spent writing a batch is split into the I/O time reported by the underlying
+ * service, and the remainder, which is mostly spent serializing the data points. Flushing and closing are counted as
+ * writing, and attributed to the generator of the latest batch. Each batch and flush is also recorded as a Flight
+ * Recorder event, when a recording is running.
+ *
+ * <p>
+ * The measurements rely on the byte counts and I/O times of the underlying service, so they're exact when a single
+ * thread writes, e.g. the writer thread of a {@link PipelinedDataPointWritingService}, and approximate otherwise.
+ *
+ * @author Emerson Farrugia
+ */
+public class InstrumentedDataPointWritingService implements DataPointWritingService {
+
+    public static final String UNKNOWN_GENERATOR_NAME = "unknown";
+
+    private final DataPointWritingService dataPointWritingService;
+    private final RunMetrics runMetrics;
+    private volatile String latestGeneratorName;
+
+
+    /**
+     * @param dataPointWritingService the service that writes the data points
+     * @param runMetrics the metrics to add the measurements to
+     */
+    public InstrumentedDataPointWritingService(DataPointWritingService dataPointWritingService,
+            RunMetrics runMetrics) {
+
+        checkNotNull(dataPointWritingService);
+        checkNotNull(runMetrics);
+
+        this.dataPointWritingService = dataPointWritingService;
+        this.runMetrics = runMetrics;
+    }
+
+    @Override
+    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws Exception {
+
+        String generatorName = dataPoints instanceof DataPointBatch
+                ? ((DataPointBatch) dataPoints).getGeneratorName()
+                : UNKNOWN_GENERATOR_NAME;
+
+        long startByteCount = dataPointWritingService.getByteCount();
+        long startIoTimeInNs = dataPointWritingService.getIoTimeInNs();
+        WriteBatchEvent event = new WriteBatchEvent();
+        event.begin();
+
+        long startTimeInNs = System.nanoTime();
+
+        long written = dataPointWritingService.writeDataPoints(dataPoints);
+
+        long durationInNs = System.nanoTime() - startTimeInNs;
+        long byteCount = dataPointWritingService.getByteCount() - startByteCount;
+        long ioTimeInNs = dataPointWritingService.getIoTimeInNs() - startIoTimeInNs;
+
+        GeneratorMetrics metrics = runMetrics.getGeneratorMetrics(generatorName);
+
+        metrics.addBytes(byteCount);
+        metrics.addSerializationTime(Math.max(0, durationInNs - ioTimeInNs));
+        metrics.addWritingTime(ioTimeInNs);
+
+        if (event.shouldCommit()) {
+            event.setGeneratorName(generatorName);
+            event.setDataPointCount(written);
+            event.setByteCount(byteCount);
+            event.setIoTime(ioTimeInNs);
+            event.commit();
+        }
+
+        latestGeneratorName = generatorName;
+
+        return written;
+    }
+
+    @Override
+    public void flush() throws Exception {
+
+        FlushEvent event = new FlushEvent();
+        event.begin();
+
+        long startByteCount = dataPointWritingService.getByteCount();
+        long startTimeInNs = System.nanoTime();
+
+        dataPointWritingService.flush();
+
+        addWriting(startByteCount, startTimeInNs);
+
+        if (event.shouldCommit()) {
+            event.setGeneratorName(latestGeneratorName);
+            event.setByteCount(dataPointWritingService.getByteCount() - startByteCount);
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean isWritingConcurrently() {
+        return dataPointWritingService.isWritingConcurrently();
+    }
+
+    @Override
+    public long getByteCount() {
+        return dataPointWritingService.getByteCount();
+    }
+
+    @Override
+    public long getIoTimeInNs() {
+        return dataPointWritingService.getIoTimeInNs();
+    }
+
+    @Override
+    public void close() throws Exception {
+
+        long startByteCount = dataPointWritingService.getByteCount();
+        long startTimeInNs = System.nanoTime();
+
+        dataPointWritingService.close();
+
+        addWriting(startByteCount, startTimeInNs);
+    }
+
+    /**
+     * Attributes the bytes written since a flush or close started, e.g. by a compressor, and its duration to the
+     * generator of the latest batch. Nothing is attributed if no batches have been written.
+     */
+    private void addWriting(long startByteCount, long startTimeInNs) {
+
+        if (latestGeneratorName == null) {
+            return;
+        }
+
+        GeneratorMetrics metrics = runMetrics.getGeneratorMetrics(latestGeneratorName);
+
+        metrics.addWritingTime(System.nanoTime() - startTimeInNs);
+        metrics.addBytes(dataPointWritingService.getByteCount() - startByteCount);
+    }
+}
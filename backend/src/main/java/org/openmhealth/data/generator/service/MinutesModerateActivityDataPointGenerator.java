@@ -17,12 +17,14 @@
 package org.openmhealth.data.generator.service;
 
 import com.google.common.collect.Sets;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.DurationUnitValue;
 import org.openmhealth.schema.domain.omh.MinutesModerateActivity;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static org.openmhealth.schema.domain.omh.DurationUnit.MINUTE;
 import static org.openmhealth.schema.domain.omh.TimeInterval.ofStartDateTimeAndDuration;
@@ -53,13 +55,25 @@ public class MinutesModerateActivityDataPointGenerator
     }
 
     @Override
-    public MinutesModerateActivity newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<MinutesModerateActivity> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        DurationUnitValue duration = new DurationUnitValue(MINUTE, valueGroup.getValue(MINUTES_KEY));
+        IntFunction<BigDecimal> minutes = batch.getDecimalColumn(MINUTES_KEY);
 
-        MinutesModerateActivity.Builder builder = new MinutesModerateActivity.Builder(duration)
-                .setEffectiveTimeFrame(ofStartDateTimeAndDuration(valueGroup.getTimestamp(), duration));
+        return row -> {
+            DurationUnitValue duration = new DurationUnitValue(MINUTE, minutes.apply(row));
 
-        return builder.build();
+            MinutesModerateActivity.Builder builder = new MinutesModerateActivity.Builder(duration)
+                    .setEffectiveTimeFrame(ofStartDateTimeAndDuration(batch.getTimestamp(row), duration));
+
+            return builder.build();
+        };
+    }
+
+    @Override
+    protected DataPointTemplateDefinition<MinutesModerateActivity> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(MinutesModerateActivity.class)
+                .addBodySlot("body.minutes_moderate_activity.value",
+                        measure -> measure.getMinutesModerateActivity().getValue());
     }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.RawBsonDocument;
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A writer of data points to a MongoDB collection. Data points are encoded to documents by a
+ * {@link BsonDataPointEncoder}, so they're stored the same way as in a mongodump file, and inserted in unordered
+ * batches on a pool of inserting threads, each of which uses a connection of its own. The number of batches being
+ * inserted or waiting to be inserted is bounded, so memory use stays bounded when the database falls behind.
+ * Instances are thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class MongoDataPointBulkWriter implements AutoCloseable {
+
+    private final MongoCollection<RawBsonDocument> collection;
+    private final ThreadLocal<BsonDataPointEncoder> encoders;
+    private final int batchSize;
+    private final int maximumPendingBatches;
+    private final Semaphore pendingBatches;
+    private final ExecutorService insertExecutorService;
+    private final InsertManyOptions insertOptions = new InsertManyOptions().ordered(false);
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+
+    /**
+     * @param collection the collection to insert documents into
+     * @param objectMapper the mapper used to serialize data points, whose output is encoded to documents
+     * @param batchSize the number of documents inserted at a time
+     * @param insertThreads the number of batches inserted at the same time
+     * @param maximumPendingBatches the maximum number of batches being inserted or waiting to be inserted, which must
+     * be at least the number of inserting threads
+     */
+    public MongoDataPointBulkWriter(MongoCollection<RawBsonDocument> collection, ObjectMapper objectMapper,
+            int batchSize, int insertThreads, int maximumPendingBatches) {
+
+        checkNotNull(collection);
+        checkNotNull(objectMapper);
+        checkArgument(batchSize > 0);
+        checkArgument(insertThreads > 0);
+        checkArgument(maximumPendingBatches >= insertThreads);
+
+        this.collection = collection;
+        this.encoders = ThreadLocal.withInitial(() -> new BsonDataPointEncoder(objectMapper));
+        this.batchSize = batchSize;
+        this.maximumPendingBatches = maximumPendingBatches;
+        this.pendingBatches = new Semaphore(maximumPendingBatches);
+
+        this.insertExecutorService = Executors.newFixedThreadPool(insertThreads,
+                new ThreadFactoryBuilder().setNameFormat("mongo-insert-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Converts data points to documents and schedules their insertion, waiting if too many batches are pending.
+     *
+     * @param dataPoints the data points to write
+     * @return the number of data points scheduled for insertion
+     * @throws Exception if an earlier insertion failed
+     */
+    public long write(Iterable<? extends DataPoint<?>> dataPoints) throws Exception {
+
+        List<RawBsonDocument> batch = new ArrayList<>(batchSize);
+        long written = 0;
+
+        for (DataPoint<?> dataPoint : dataPoints) {
+
+            batch.add(newDocument(dataPoint));
+            written++;
+
+            if (batch.size() == batchSize) {
+                insert(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+
+        return written;
+    }
+
+    /**
+     * @param dataPoint a data point
+     * @return the document corresponding to the data point, identified by the identifier in its header
+     */
+    public RawBsonDocument newDocument(DataPoint<?> dataPoint) throws IOException {
+        return encoders.get().encode(dataPoint);
+    }
+
+    private void insert(List<RawBsonDocument> batch) throws Exception {
+
+        throwFailure();
+        pendingBatches.acquire();
+
+        try {
+            insertExecutorService.execute(() -> {
+                try {
+                    // unordered inserts let the server continue past failed documents and apply a batch in parallel
+                    collection.insertMany(batch, insertOptions);
+                }
+                catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+                finally {
+                    pendingBatches.release();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            pendingBatches.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Throws the error of an earlier insertion, if any. Batches still being inserted aren't waited for, so that the
+     * inserting threads keep overlapping across calls.
+     *
+     * @throws Exception if an insertion failed
+     */
+    public void flush() throws Exception {
+        throwFailure();
+    }
+
+    /**
+     * Waits until the pending batches have been inserted.
+     *
+     * @throws Exception if an insertion failed
+     */
+    public void awaitPendingBatches() throws Exception {
+
+        pendingBatches.acquire(maximumPendingBatches);
+        pendingBatches.release(maximumPendingBatches);
+
+        throwFailure();
+    }
+
+    private void throwFailure() throws Exception {
+
+        Exception exception = failure.get();
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Waits until the pending batches have been inserted and stops the inserting threads. The collection is left
+     * open.
+     */
+    @Override
+    public void close() throws Exception {
+
+        try {
+            awaitPendingBatches();
+        }
+        finally {
+            insertExecutorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
+import org.bson.RawBsonDocument;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+
+/**
+ * A service that writes data points directly to a MongoDB collection, configured using the "output.mongo" settings.
+ *
+ * @author Emerson Farrugia
+ * @see MongoDataPointBulkWriter
+ */
+@Service
+@Primary
+@ConditionalOnExpression("'${output.destination}' == 'mongo'")
+public class MongoDataPointWritingServiceImpl implements DataPointWritingService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${output.mongo.uri:mongodb://localhost:27017/omh}")
+    private String uri;
+
+    @Value("${output.mongo.collection:dataPoint}")
+    private String collectionName;
+
+    @Value("${output.mongo.batch-size:1000}")
+    private Integer batchSize;
+
+    @Value("${output.mongo.writers:4}")
+    private Integer writers;
+
+    @Value("${output.mongo.pending-batches-per-writer:2}")
+    private Integer pendingBatchesPerWriter;
+
+    @Value("${output.mongo.wait-for-inserts-on-flush:false}")
+    private Boolean waitForInsertsOnFlush;
+
+    private WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+    private MongoClient mongoClient;
+    private MongoDataPointBulkWriter writer;
+    private boolean closed = false;
+
+
+    /**
+     * @param writeConcern the name of the write concern of the inserts, e.g. "acknowledged", "unacknowledged",
+     * "journaled" or "majority"
+     */
+    @Value("${output.mongo.write-concern:acknowledged}")
+    public void setWriteConcern(String writeConcern) {
+
+        WriteConcern namedWriteConcern =
+                WriteConcern.valueOf(writeConcern.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        checkArgument(namedWriteConcern != null, "The write concern '%s' isn't supported.", writeConcern);
+
+        this.writeConcern = namedWriteConcern;
+    }
+
+    @PostConstruct
+    public void initializeWriter() {
+
+        checkArgument(batchSize > 0 && writers > 0 && pendingBatchesPerWriter > 0,
+                "The batch size, writer count and pending batches per writer must all be positive.");
+
+        MongoClientURI clientUri = new MongoClientURI(uri);
+        checkArgument(clientUri.getDatabase() != null, "The URI '%s' doesn't specify a database.", uri);
+
+        // the client keeps a pool of connections, so each inserting thread gets a connection of its own
+        mongoClient = new MongoClient(clientUri);
+
+        MongoCollection<RawBsonDocument> collection = mongoClient.getDatabase(clientUri.getDatabase())
+                .getCollection(collectionName, RawBsonDocument.class)
+                .withWriteConcern(writeConcern);
+
+        writer = new MongoDataPointBulkWriter(collection, objectMapper, batchSize, writers,
+                writers * pendingBatchesPerWriter);
+    }
+
+    @Override
+    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws Exception {
+        return writer.write(dataPoints);
+    }
+
+    /**
+     * Throws the error of an earlier insertion, if any. This is called at the end of every request, so it only waits
+     * until the data points that have been written are inserted if configured to, since waiting would stall
+     * generation and stop the inserts of consecutive requests from overlapping.
+     */
+    @Override
+    public void flush() throws Exception {
+
+        if (waitForInsertsOnFlush) {
+            writer.awaitPendingBatches();
+        }
+        else {
+            writer.flush();
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws Exception {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            writer.close();
+        }
+        finally {
+            mongoClient.close();
+        }
+    }
+}
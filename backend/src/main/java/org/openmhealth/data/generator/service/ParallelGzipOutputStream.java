@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * An output stream that compresses bytes in the gzip format, compressing fixed-size blocks on several threads in the
+ * manner of pigz. Each block is written as a gzip member of its own, and since a gzip stream is allowed to contain
+ * several members, the output can be decompressed by any gzip implementation. Flushing only writes the blocks that
+ * are already complete, so that frequent flushes don't fill the file with tiny members; the bytes of the last,
+ * partial block are compressed when the block fills up or the stream is closed. Instances aren't thread-safe.
+ *
+ * @author Emerson Farrugia
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * The number of blocks per thread that may be compressed ahead of the block being written.
+     */
+    public static final int BLOCKS_AHEAD_PER_THREAD = 2;
+
+    // the magic number, the deflate method, no flags, no modification time, no extra flags and an unknown OS
+    private static final byte[] MEMBER_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream outputStream;
+    private final int level;
+    private final int blockSize;
+    private final ExecutorService executorService;
+    private final int maximumPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength = 0;
+    private boolean closed = false;
+
+
+    /**
+     * @param outputStream the stream to write compressed bytes to
+     * @param level the compression level, from 0 to 9, or -1 for the default level
+     * @param threads the number of threads to compress blocks on
+     */
+    public ParallelGzipOutputStream(OutputStream outputStream, int level, int threads) {
+        this(outputStream, level, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param outputStream the stream to write compressed bytes to
+     * @param level the compression level, from 0 to 9, or -1 for the default level
+     * @param threads the number of threads to compress blocks on
+     * @param blockSize the number of uncompressed bytes in each block
+     */
+    public ParallelGzipOutputStream(OutputStream outputStream, int level, int threads, int blockSize) {
+
+        checkNotNull(outputStream);
+        checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= 0 && level <= 9));
+        checkArgument(threads >= 1);
+        checkArgument(blockSize > 0);
+
+        this.outputStream = outputStream;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+
+        if (threads > 1) {
+            this.executorService = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("compression-%d").setDaemon(true).build());
+            this.maximumPendingBlocks = threads * BLOCKS_AHEAD_PER_THREAD;
+        }
+        else {
+            this.executorService = null;
+            this.maximumPendingBlocks = 0;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        while (length > 0) {
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+
+            int chunkLength = Math.min(length, blockSize - blockLength);
+
+            System.arraycopy(bytes, offset, block, blockLength, chunkLength);
+            blockLength += chunkLength;
+            offset += chunkLength;
+            length -= chunkLength;
+        }
+    }
+
+    private void submitBlock() throws IOException {
+
+        if (blockLength == 0) {
+            return;
+        }
+
+        byte[] uncompressedBlock = block;
+        int uncompressedLength = blockLength;
+
+        // a block that's being compressed can't be reused, so a new one is allocated
+        block = new byte[blockSize];
+        blockLength = 0;
+
+        if (executorService == null) {
+            outputStream.write(compressMember(uncompressedBlock, uncompressedLength, level));
+            return;
+        }
+
+        while (pendingBlocks.size() >= maximumPendingBlocks) {
+            writeOldestPendingBlock();
+        }
+
+        pendingBlocks.add(executorService.submit(() -> compressMember(uncompressedBlock, uncompressedLength, level)));
+    }
+
+    private void writeOldestPendingBlock() throws IOException {
+
+        try {
+            outputStream.write(pendingBlocks.remove().get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("A block couldn't be compressed.", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("A block couldn't be compressed.", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the blocks that are complete and flushes the underlying stream. The bytes of the partial block stay
+     * buffered, since compressing them now would end a gzip member early and hurt the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+
+        writePendingBlocks();
+        outputStream.flush();
+    }
+
+    private void writePendingBlocks() throws IOException {
+
+        while (!pendingBlocks.isEmpty()) {
+            writeOldestPendingBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            submitBlock();
+            writePendingBlocks();
+            outputStream.flush();
+        }
+        finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+
+            outputStream.close();
+        }
+    }
+
+    /**
+     * @return a complete gzip member containing the specified bytes
+     */
+    private static byte[] compressMember(byte[] bytes, int length, int level) {
+
+        Deflater deflater = new Deflater(level, true);
+
+        try {
+            ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+
+            member.write(MEMBER_HEADER, 0, MEMBER_HEADER.length);
+
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                member.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, length);
+
+            writeLittleEndianInt(member, (int) crc.getValue());
+            writeLittleEndianInt(member, length);
+
+            return member.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeLittleEndianInt(ByteArrayOutputStream outputStream, int value) {
+
+        outputStream.write(value);
+        outputStream.write(value >>> 8);
+        outputStream.write(value >>> 16);
+        outputStream.write(value >>> 24);
+    }
+}
@@ -17,13 +17,15 @@
 package org.openmhealth.data.generator.service;
 
 import com.google.common.collect.Sets;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.DurationUnitValue;
 import org.openmhealth.schema.domain.omh.LengthUnitValue;
 import org.openmhealth.schema.domain.omh.PhysicalActivity;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static org.openmhealth.schema.domain.omh.DurationUnit.SECOND;
 import static org.openmhealth.schema.domain.omh.LengthUnit.METER;
@@ -56,17 +58,30 @@ public class PhysicalActivityDataPointGenerator
     }
 
     @Override
-    public PhysicalActivity newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<PhysicalActivity> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        DurationUnitValue duration = new DurationUnitValue(SECOND, valueGroup.getValue(DURATION_KEY));
+        IntFunction<BigDecimal> durations = batch.getDecimalColumn(DURATION_KEY);
+        IntFunction<BigDecimal> distances = batch.getDecimalColumn(DISTANCE_KEY);
 
-        PhysicalActivity.Builder builder = new PhysicalActivity.Builder("some activity")
-                .setEffectiveTimeFrame(ofStartDateTimeAndDuration(valueGroup.getTimestamp(), duration));
+        return row -> {
+            DurationUnitValue duration = new DurationUnitValue(SECOND, durations.apply(row));
 
-        if (valueGroup.getValue(DISTANCE_KEY) != null) {
-            builder.setDistance(new LengthUnitValue(METER, valueGroup.getValue(DISTANCE_KEY)));
-        }
+            PhysicalActivity.Builder builder = new PhysicalActivity.Builder("some activity")
+                    .setEffectiveTimeFrame(ofStartDateTimeAndDuration(batch.getTimestamp(row), duration));
 
-        return builder.build();
+            if (distances != null) {
+                builder.setDistance(new LengthUnitValue(METER, distances.apply(row)));
+            }
+
+            return builder.build();
+        };
+    }
+
+    @Override
+    protected DataPointTemplateDefinition<PhysicalActivity> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(PhysicalActivity.class)
+                .addBodySlot("body.distance.value",
+                        measure -> measure.getDistance() != null ? measure.getDistance().getValue() : null);
     }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openmhealth.data.generator.domain.DataPointBatch;
+import org.openmhealth.schema.domain.omh.DataPoint;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A writing service that decouples the threads generating data points from the service that writes them. Batches of
+ * data points are handed to a bounded {@link RingBuffer}, and a single writer thread takes them off the buffer and
+ * writes them using the underlying service. Generation therefore continues while the underlying service blocks on
+ * I/O, until the buffer fills up.
+ *
+ * <p>
+ * Since writes happen asynchronously, the number of data points returned by {@link #writeDataPoints(Iterable)} is
+ * the number accepted for writing. An error raised by the underlying service is thrown by the next call to this
+ * service.
+ *
+ * @author Emerson Farrugia
+ */
+public class PipelinedDataPointWritingService implements DataPointWritingService {
+
+    /**
+     * An entry in the ring buffer, which either holds a batch of data points or requests a flush or a close.
+     */
+    private static class WriteRequest {
+
+        private List<? extends DataPoint<?>> dataPoints;
+        private boolean flush;
+        private boolean close;
+
+        private void clear() {
+
+            dataPoints = null;
+            flush = false;
+            close = false;
+        }
+    }
+
+    private final DataPointWritingService dataPointWritingService;
+    private final RingBuffer<WriteRequest> ringBuffer;
+    private final Thread writerThread;
+    private volatile Exception failure;
+    private boolean closed = false;
+
+
+    /**
+     * @param dataPointWritingService the service that writes the data points
+     * @param capacity the maximum number of batches waiting to be written, which is rounded up to a power of two
+     */
+    public PipelinedDataPointWritingService(DataPointWritingService dataPointWritingService, int capacity) {
+
+        checkNotNull(dataPointWritingService);
+
+        this.dataPointWritingService = dataPointWritingService;
+        this.ringBuffer = new RingBuffer<>(capacity, WriteRequest::new);
+
+        this.writerThread = new ThreadFactoryBuilder().setNameFormat("writer").setDaemon(true).build()
+                .newThread(this::processWriteRequests);
+        this.writerThread.start();
+    }
+
+    @Override
+    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws Exception {
+
+        // other batches are copied, since the caller may reuse or lazily compute what it passed in
+        List<? extends DataPoint<?>> batch = dataPoints instanceof DataPointBatch
+                ? (DataPointBatch) dataPoints
+                : Lists.newArrayList(dataPoints);
+
+        publish(writeRequest -> writeRequest.dataPoints = batch);
+
+        return batch.size();
+    }
+
+    /**
+     * Flushes the underlying service once the data points accepted so far have been written. This doesn't wait for the
+     * flush, so that requests that finish in quick succession don't stall generation.
+     */
+    @Override
+    public void flush() throws Exception {
+        publish(writeRequest -> writeRequest.flush = true);
+    }
+
+    /**
+     * @return the number of bytes the underlying service has written so far, which lags the data points accepted
+     */
+    @Override
+    public long getByteCount() {
+        return dataPointWritingService.getByteCount();
+    }
+
+    /**
+     * @return the time the underlying service has spent on I/O so far
+     */
+    @Override
+    public long getIoTimeInNs() {
+        return dataPointWritingService.getIoTimeInNs();
+    }
+
+    /**
+     * Waits until the data points accepted so far have been written, then closes the underlying service. The
+     * underlying service is closed even if it has failed, in which case its error is thrown once it's closed.
+     */
+    @Override
+    public synchronized void close() throws Exception {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        // a writer thread that has failed keeps draining the buffer until it reaches the close request, whereas one
+        // that has been interrupted has already closed the underlying service and stopped
+        if (writerThread.isAlive()) {
+            enqueue(writeRequest -> writeRequest.close = true);
+        }
+
+        writerThread.join();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void publish(Consumer<WriteRequest> initializer) throws Exception {
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        enqueue(initializer);
+    }
+
+    private void enqueue(Consumer<WriteRequest> initializer) throws InterruptedException {
+
+        long sequence = ringBuffer.claim();
+
+        initializer.accept(ringBuffer.get(sequence));
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Closes the underlying service, even if it has failed, so that its outputs are finished and its resources
+     * released. An error closing the service becomes the failure, or is added to the original error if the service
+     * has already failed.
+     */
+    private void closeDataPointWritingService() {
+
+        try {
+            dataPointWritingService.close();
+        }
+        catch (Exception e) {
+            if (failure == null) {
+                failure = e;
+            }
+            else if (e != failure) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Processes write requests in order until a close is requested. Once the underlying service has failed, the
+     * remaining requests are drained without writing, so that producers waiting on the buffer are released.
+     */
+    private void processWriteRequests() {
+
+        for (long sequence = 0; ; sequence++) {
+
+            WriteRequest writeRequest;
+
+            try {
+                writeRequest = ringBuffer.waitFor(sequence);
+            }
+            catch (InterruptedException e) {
+                failure = e;
+                closeDataPointWritingService();
+                return;
+            }
+
+            try {
+                if (writeRequest.close) {
+                    closeDataPointWritingService();
+                    return;
+                }
+
+                if (writeRequest.dataPoints != null && failure == null) {
+                    dataPointWritingService.writeDataPoints(writeRequest.dataPoints);
+                }
+
+                if (writeRequest.flush && failure == null) {
+                    dataPointWritingService.flush();
+                }
+            }
+            catch (Exception e) {
+                failure = e;
+            }
+            finally {
+                writeRequest.clear();
+                ringBuffer.release(sequence);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+
+/**
+ * A bounded, lock-free ring buffer of pre-allocated entries with any number of producers and a single consumer, in
+ * the style of the LMAX Disruptor. A producer claims a sequence, fills the entry at that sequence and publishes it.
+ * The consumer waits for each sequence in turn, processes its entry and releases it, making room for a producer.
+ * Producers wait when the buffer is full, so the number of entries in flight is bounded by its capacity. Waiting
+ * threads spin briefly, then yield, then park.
+ *
+ * @param <E> the type of entry
+ * @author Emerson Farrugia
+ */
+class RingBuffer<E> {
+
+    private static final int SPIN_ATTEMPTS = 100;
+    private static final int YIELD_ATTEMPTS = 100;
+    private static final long PARK_DURATION_IN_NS = 50_000;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] entries;
+    private final AtomicLongArray publishedSequences;
+    private final AtomicLong lastClaimedSequence = new AtomicLong(-1);
+    private final AtomicLong lastReleasedSequence = new AtomicLong(-1);
+
+
+    /**
+     * @param capacity the number of entries, which is rounded up to a power of two
+     * @param entryFactory a factory that creates the entries up front
+     */
+    RingBuffer(int capacity, Supplier<E> entryFactory) {
+
+        checkArgument(capacity > 0 && capacity <= 1 << 30);
+        checkNotNull(entryFactory);
+
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.entries = new Object[this.capacity];
+        this.publishedSequences = new AtomicLongArray(this.capacity);
+
+        for (int i = 0; i < this.capacity; i++) {
+            entries[i] = entryFactory.get();
+            publishedSequences.set(i, -1);
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Claims the next sequence for a producer, waiting until its entry has been released by the consumer.
+     *
+     * @return the claimed sequence
+     */
+    long claim() throws InterruptedException {
+
+        long sequence = lastClaimedSequence.incrementAndGet();
+
+        for (int attempt = 0; lastReleasedSequence.get() < sequence - capacity; attempt++) {
+            idle(attempt);
+        }
+
+        return sequence;
+    }
+
+    /**
+     * @param sequence a claimed or published sequence
+     * @return the entry at the sequence
+     */
+    @SuppressWarnings("unchecked")
+    E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the entry at a claimed sequence available to the consumer.
+     *
+     * @param sequence a claimed sequence
+     */
+    void publish(long sequence) {
+
+        // an ordered write, so that the consumer sees the entry as it was filled
+        publishedSequences.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Waits until the entry at a sequence has been published. This must only be called by the consumer, for each
+     * sequence in turn.
+     *
+     * @param sequence the sequence after the last one released
+     * @return the published entry
+     */
+    E waitFor(long sequence) throws InterruptedException {
+
+        for (int attempt = 0; publishedSequences.get((int) sequence & mask) != sequence; attempt++) {
+            idle(attempt);
+        }
+
+        return get(sequence);
+    }
+
+    /**
+     * Makes the entry at a sequence available to producers again. This must only be called by the consumer.
+     *
+     * @param sequence the sequence returned by the last call to {@link #waitFor(long)}
+     */
+    void release(long sequence) {
+        lastReleasedSequence.lazySet(sequence);
+    }
+
+    private static void idle(int attempt) throws InterruptedException {
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        if (attempt < SPIN_ATTEMPTS) {
+            return;
+        }
+
+        if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+            Thread.yield();
+        }
+        else {
+            LockSupport.parkNanos(PARK_DURATION_IN_NS);
+        }
+    }
+}
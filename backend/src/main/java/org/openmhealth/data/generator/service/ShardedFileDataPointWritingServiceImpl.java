@@ -0,0 +1,357 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+
+/**
+ * A service that writes data points to numbered shard files, one JSON object per line. A shard is closed and the next
+ * one opened once it reaches a configured number of data points or bytes. Several shards are written at the same
+ * time, one per concurrent caller up to a configured number of shard writers, so that requests running on different
+ * threads don't contend for a single file. A manifest listing the shards is written when the service is closed.
+ *
+ * <p>
+ * The names of the shards and the manifest are derived from the configured filename. For example, shards of
+ * "output.json" are named "output-00001.json", "output-00002.json", etc., and the manifest "output-manifest.json".
+ *
+ * @author Emerson Farrugia
+ */
+@Service
+@Primary
+@ConditionalOnExpression("'${output.destination}' == 'sharded-file'")
+public class ShardedFileDataPointWritingServiceImpl extends AbstractFileDataPointWritingServiceImpl {
+
+    public static final String MANIFEST_SUFFIX = "-manifest.json";
+
+    @Value("${output.file.shard-writers:1}")
+    private Integer shardWriters;
+
+    @Value("${output.file.shard-size-in-data-points:0}")
+    private Long maximumShardSizeInDataPoints;
+
+    @Value("${output.file.shard-size-in-mb:0}")
+    private Long maximumShardSizeInMb;
+
+    private Path directory;
+    private String shardNamePrefix;
+    private String shardNameSuffix;
+    private Path manifestPath;
+    private final AtomicInteger lastShardIndex = new AtomicInteger();
+
+    private final List<ShardWriterSlot> shardWriterSlots = new ArrayList<>();
+    private BlockingQueue<ShardWriterSlot> idleShardWriterSlots;
+    private final SortedMap<Integer, ObjectNode> closedShardsByIndex = new TreeMap<>();
+    private volatile boolean closed = false;
+
+
+    /**
+     * A slot holding the shard a single caller writes to at a time. The writer and the counts of the shards the slot
+     * has closed are volatile so that they can be read without waiting for the caller.
+     */
+    private static class ShardWriterSlot {
+
+        private int index;
+        private Path path;
+        private volatile DataPointFileWriter writer;
+        private volatile long closedByteCount = 0;
+        private volatile long closedIoTimeInNs = 0;
+    }
+
+    /**
+     * @return true if several shards are written at the same time, false otherwise
+     */
+    @Override
+    public boolean isWritingConcurrently() {
+        return shardWriters > 1;
+    }
+
+    @PostConstruct
+    public void initializeShards() throws IOException {
+
+        checkArgument(shardWriters >= 1, "The number of shard writers must be positive.");
+        checkArgument(maximumShardSizeInDataPoints >= 0, "The maximum shard size in data points can't be negative.");
+        checkArgument(maximumShardSizeInMb >= 0, "The maximum shard size in megabytes can't be negative.");
+
+        Path path = Paths.get(getFilename());
+        String filename = path.getFileName().toString();
+
+        // the index goes before the first extension, so that "output.json.gz" becomes "output-00001.json.gz"
+        int extensionIndex = filename.indexOf('.') > 0 ? filename.indexOf('.') : filename.length();
+
+        directory = path.getParent() != null ? path.getParent() : Paths.get("");
+        shardNamePrefix = filename.substring(0, extensionIndex) + "-";
+        shardNameSuffix = filename.substring(extensionIndex);
+        manifestPath = directory.resolve(filename.substring(0, extensionIndex) + MANIFEST_SUFFIX);
+
+        Pattern shardNamePattern =
+                Pattern.compile(Pattern.quote(shardNamePrefix) + "(\\d+)" + Pattern.quote(shardNameSuffix));
+
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+                for (Path existingPath : directoryStream) {
+
+                    Matcher matcher = shardNamePattern.matcher(existingPath.getFileName().toString());
+
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+
+                    if (isAppend()) {
+                        // new shards are numbered after the existing ones
+                        lastShardIndex.set(Math.max(lastShardIndex.get(), Integer.parseInt(matcher.group(1))));
+                    }
+                    else {
+                        Files.delete(existingPath);
+                    }
+                }
+            }
+        }
+
+        if (!isAppend()) {
+            Files.deleteIfExists(manifestPath);
+        }
+
+        for (int i = 0; i < shardWriters; i++) {
+            shardWriterSlots.add(new ShardWriterSlot());
+        }
+
+        idleShardWriterSlots = new ArrayBlockingQueue<>(shardWriters, false, shardWriterSlots);
+    }
+
+    @Override
+    public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) throws IOException, InterruptedException {
+
+        checkState(!closed, "Data points can't be written once the service is closed.");
+
+        ShardWriterSlot slot = idleShardWriterSlots.take();
+        long written = 0;
+
+        try {
+            synchronized (slot) {
+                for (DataPoint<?> dataPoint : dataPoints) {
+
+                    if (slot.writer != null && isShardFull(slot.writer)) {
+                        closeShard(slot);
+                    }
+
+                    if (slot.writer == null) {
+                        openShard(slot);
+                    }
+
+                    slot.writer.write(dataPoint);
+                    written++;
+                }
+            }
+        }
+        finally {
+            idleShardWriterSlots.add(slot);
+        }
+
+        return written;
+    }
+
+    private boolean isShardFull(DataPointFileWriter writer) {
+
+        if (maximumShardSizeInDataPoints > 0 && writer.getDataPointCount() >= maximumShardSizeInDataPoints) {
+            return true;
+        }
+
+        return maximumShardSizeInMb > 0 && writer.getByteCount() >= maximumShardSizeInMb * 1024 * 1024;
+    }
+
+    private void openShard(ShardWriterSlot slot) throws IOException {
+
+        slot.index = lastShardIndex.incrementAndGet();
+        slot.path = directory.resolve(String.format("%s%05d%s", shardNamePrefix, slot.index, shardNameSuffix));
+        slot.writer = newDataPointFileWriter(slot.path);
+    }
+
+    private void closeShard(ShardWriterSlot slot) throws IOException {
+
+        DataPointFileWriter writer = slot.writer;
+        slot.writer = null;
+
+        writer.close();
+
+        slot.closedByteCount += writer.getByteCount();
+        slot.closedIoTimeInNs += writer.getIoTimeInNs();
+
+        ObjectNode shard = getObjectMapper().createObjectNode();
+
+        shard.put("filename", slot.path.getFileName().toString());
+        shard.put("data_point_count", writer.getDataPointCount());
+        shard.put("size_in_bytes", writer.getByteCount());
+        putDateTime(shard, "earliest_effective_date_time", writer.getEarliestEffectiveDateTime());
+        putDateTime(shard, "latest_effective_date_time", writer.getLatestEffectiveDateTime());
+
+        synchronized (closedShardsByIndex) {
+            closedShardsByIndex.put(slot.index, shard);
+        }
+    }
+
+    private void putDateTime(ObjectNode node, String fieldName, OffsetDateTime dateTime) {
+
+        if (dateTime != null) {
+            node.put(fieldName, dateTime.toString());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        for (ShardWriterSlot slot : shardWriterSlots) {
+            synchronized (slot) {
+                if (slot.writer != null) {
+                    slot.writer.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes written to shards, which is approximate while other callers are writing
+     */
+    @Override
+    public long getByteCount() {
+
+        long byteCount = 0;
+
+        for (ShardWriterSlot slot : shardWriterSlots) {
+            DataPointFileWriter writer = slot.writer;
+            byteCount += slot.closedByteCount + (writer != null ? writer.getByteCount() : 0);
+        }
+
+        return byteCount;
+    }
+
+    /**
+     * @return the time spent writing to shards and syncing them, which is approximate while other callers are writing
+     */
+    @Override
+    public long getIoTimeInNs() {
+
+        long ioTimeInNs = 0;
+
+        for (ShardWriterSlot slot : shardWriterSlots) {
+            DataPointFileWriter writer = slot.writer;
+            ioTimeInNs += slot.closedIoTimeInNs + (writer != null ? writer.getIoTimeInNs() : 0);
+        }
+
+        return ioTimeInNs;
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        // every shard is closed and listed in the manifest even if another one fails to close
+        IOException closeFailure = null;
+
+        for (ShardWriterSlot slot : shardWriterSlots) {
+            synchronized (slot) {
+                if (slot.writer != null) {
+                    try {
+                        closeShard(slot);
+                    }
+                    catch (IOException e) {
+                        if (closeFailure == null) {
+                            closeFailure = e;
+                        }
+                        else {
+                            closeFailure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+        }
+
+        try {
+            writeManifest();
+        }
+        catch (IOException e) {
+            if (closeFailure == null) {
+                throw e;
+            }
+
+            closeFailure.addSuppressed(e);
+        }
+
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+    }
+
+    /**
+     * Writes a manifest listing the shards in order of their indices, which may have more digits than the padding of
+     * their names. If existing shards are being appended to, the shards in the existing manifest are kept.
+     */
+    private void writeManifest() throws IOException {
+
+        ObjectNode manifest = getObjectMapper().createObjectNode();
+        ArrayNode shards = manifest.putArray("shards");
+
+        if (isAppend() && Files.exists(manifestPath)) {
+
+            JsonNode existingShards = getObjectMapper().readTree(manifestPath.toFile()).path("shards");
+
+            for (JsonNode existingShard : existingShards) {
+                shards.add(existingShard);
+            }
+        }
+
+        synchronized (closedShardsByIndex) {
+            shards.addAll(closedShardsByIndex.values());
+        }
+
+        getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(manifestPath.toFile(), manifest);
+    }
+}
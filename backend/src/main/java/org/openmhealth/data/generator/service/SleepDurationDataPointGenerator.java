@@ -16,12 +16,14 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.DurationUnitValue;
 import org.openmhealth.schema.domain.omh.SleepDuration;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static java.util.Collections.singleton;
 import static org.openmhealth.schema.domain.omh.DurationUnit.HOUR;
@@ -53,13 +55,24 @@ public class SleepDurationDataPointGenerator
     }
 
     @Override
-    public SleepDuration newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<SleepDuration> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        DurationUnitValue duration = new DurationUnitValue(HOUR, valueGroup.getValue(DURATION_KEY));
+        IntFunction<BigDecimal> durations = batch.getDecimalColumn(DURATION_KEY);
 
-        SleepDuration.Builder builder = new SleepDuration.Builder(duration)
-                .setEffectiveTimeFrame(ofStartDateTimeAndDuration(valueGroup.getTimestamp(), duration));
+        return row -> {
+            DurationUnitValue duration = new DurationUnitValue(HOUR, durations.apply(row));
 
-        return builder.build();
+            SleepDuration.Builder builder = new SleepDuration.Builder(duration)
+                    .setEffectiveTimeFrame(ofStartDateTimeAndDuration(batch.getTimestamp(row), duration));
+
+            return builder.build();
+        };
+    }
+
+    @Override
+    protected DataPointTemplateDefinition<SleepDuration> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(SleepDuration.class)
+                .addBodySlot("body.sleep_duration.value", measure -> measure.getSleepDuration().getValue());
     }
 }
@@ -17,12 +17,14 @@
 package org.openmhealth.data.generator.service;
 
 import com.google.common.collect.Sets;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.openmhealth.schema.domain.omh.DurationUnitValue;
 import org.openmhealth.schema.domain.omh.StepCount;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static org.openmhealth.schema.domain.omh.DurationUnit.SECOND;
 import static org.openmhealth.schema.domain.omh.TimeInterval.ofStartDateTimeAndDuration;
@@ -53,15 +55,26 @@ public class StepCountDataPointGenerator extends AbstractDataPointGeneratorImpl<
     }
 
     @Override
-    public StepCount newMeasure(TimestampedValueGroup valueGroup) {
+    public IntFunction<StepCount> newMeasureFactory(TimestampedValueGroupBatch batch) {
 
-        DurationUnitValue duration = new DurationUnitValue(SECOND, valueGroup.getValue(DURATION_KEY));
-        double stepsPerMin = valueGroup.getValue(STEPS_PER_MINUTE_KEY);
+        IntFunction<BigDecimal> durations = batch.getDecimalColumn(DURATION_KEY);
+        double[] stepsPerMinute = batch.getColumn(STEPS_PER_MINUTE_KEY);
 
-        Double stepCount = stepsPerMin * duration.getValue().doubleValue() / 60.0;
+        return row -> {
+            DurationUnitValue duration = new DurationUnitValue(SECOND, durations.apply(row));
 
-        return new StepCount.Builder(stepCount.longValue())
-                .setEffectiveTimeFrame(ofStartDateTimeAndDuration(valueGroup.getTimestamp(), duration))
-                .build();
+            double stepCount = stepsPerMinute[row] * duration.getValue().doubleValue() / 60.0;
+
+            return new StepCount.Builder((long) stepCount)
+                    .setEffectiveTimeFrame(ofStartDateTimeAndDuration(batch.getTimestamp(row), duration))
+                    .build();
+        };
+    }
+
+    @Override
+    protected DataPointTemplateDefinition<StepCount> newTemplateDefinition() {
+
+        return new DataPointTemplateDefinition<>(StepCount.class)
+                .addBodySlot("body.step_count", measure -> measure.getStepCount());
     }
 }
@@ -18,6 +18,10 @@ package org.openmhealth.data.generator.service;
 
 import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
 import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+
+import static com.google.common.collect.Iterables.concat;
+import static com.google.common.collect.Iterables.transform;
 
 
 /**
@@ -29,7 +33,19 @@ public interface TimestampedValueGroupGenerationService {
 
     /**
      * @param request a request to generate measures
-     * @return a list of timestamped value groups from which measures can be built
+     * @return an iterable of timestamped value groups from which measures can be built. The value groups are
+     * generated lazily as the iterable is traversed. Traversing it again generates the same value groups if the request
+     * is seeded, and a new set of value groups otherwise.
+     */
+    default Iterable<TimestampedValueGroup> generateValueGroups(MeasureGenerationRequest request) {
+        return concat(transform(generateValueGroupBatches(request), TimestampedValueGroupBatch::getValueGroups));
+    }
+
+    /**
+     * @param request a request to generate measures
+     * @return an iterable of batches of timestamped value groups, in timestamp order, with a column for each trend in
+     * the request. The batches are generated lazily as the iterable is traversed, in the same way as
+     * {@link #generateValueGroups(MeasureGenerationRequest)}.
      */
-    Iterable<TimestampedValueGroup> generateValueGroups(MeasureGenerationRequest request);
+    Iterable<TimestampedValueGroupBatch> generateValueGroupBatches(MeasureGenerationRequest request);
 }
@@ -16,19 +16,36 @@
 
 package org.openmhealth.data.generator.service;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.domain.BoundedRandomVariable;
 import org.openmhealth.data.generator.domain.BoundedRandomVariableTrend;
+import org.openmhealth.data.generator.domain.Decimals;
 import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
-import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.metrics.ChunkGenerationEvent;
+import org.openmhealth.data.generator.random.BlockVariateGenerator;
+import org.openmhealth.data.generator.random.RandomGeneratorAlgorithm;
+import org.openmhealth.data.generator.random.SplittableRandomGenerator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static java.time.temporal.ChronoUnit.SECONDS;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static org.openmhealth.data.generator.random.RandomGeneratorAlgorithm.SPLITMIX64;
+import static org.openmhealth.data.generator.random.RandomGenerators.newSeed;
 
 
 /**
@@ -40,50 +57,276 @@ public class TimestampedValueGroupGenerationServiceImpl implements TimestampedVa
     public static final int NIGHT_TIME_START_HOUR = 23;
     public static final int NIGHT_TIME_END_HOUR = 6;
 
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int SECONDS_PER_DAY = 24 * SECONDS_PER_HOUR;
+
+    /**
+     * The mean number of value groups in a chunk. The time range of a request is split into chunks lasting this many
+     * mean inter-point durations. Since the split doesn't depend on the number of threads generating the chunks, a
+     * seeded request generates the same value groups however many threads are used.
+     */
+    public static final long MEAN_VALUE_GROUPS_PER_CHUNK = 4096;
+
+    /**
+     * The number of chunks per thread that may be generated ahead of the chunk being consumed.
+     */
+    public static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    // marks the columns whose values aren't rounded, so the loop generating values doesn't unbox decimal places
+    private static final int UNROUNDED = -1;
+
+    private int chunkThreads = 1;
+    private ExecutorService chunkExecutorService;
+
+
+    /**
+     * @param chunkThreads the number of threads used to generate the chunks of a request
+     */
+    @Value("${generation.chunk-threads:1}")
+    public void setChunkThreads(int chunkThreads) {
+
+        checkArgument(chunkThreads >= 1);
+
+        shutdown();
+        this.chunkThreads = chunkThreads;
+
+        if (chunkThreads > 1) {
+            this.chunkExecutorService = Executors.newFixedThreadPool(chunkThreads,
+                    new ThreadFactoryBuilder().setNameFormat("chunk-%d").setDaemon(true).build());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        if (chunkExecutorService != null) {
+            chunkExecutorService.shutdownNow();
+            chunkExecutorService = null;
+        }
+    }
 
     @Override
-    public Iterable<TimestampedValueGroup> generateValueGroups(MeasureGenerationRequest request) {
+    public Iterable<TimestampedValueGroupBatch> generateValueGroupBatches(MeasureGenerationRequest request) {
+
+        checkArgument(request.isMeanInterPointDurationSupported(),
+                "The mean inter-point duration %s is shorter than a second.", request.getMeanInterPointDuration());
+
+        // value groups are only generated as they're consumed, so memory use doesn't grow with the request size
+        return () -> new ChunkIterator(request);
+    }
+
+    /**
+     * An iterator that splits the time range of a request into chunks, generates the chunks ahead of time on the chunk
+     * threads, and returns them as batches in timestamp order.
+     */
+    private class ChunkIterator extends AbstractIterator<TimestampedValueGroupBatch> {
 
-        ExponentialDistribution interPointDurationDistribution =
-                new ExponentialDistribution(request.getMeanInterPointDuration().getSeconds());
+        private final MeasureGenerationRequest request;
+        private final SplittableRandomGenerator randomGenerator;
+        private final Map<String, SplittableRandomGenerator> seededTrendRandomGenerators = new HashMap<>();
+        private final ExecutorService executorService = chunkExecutorService;
+        private final int maximumPendingChunks = executorService == null ? 1 : chunkThreads * CHUNKS_AHEAD_PER_THREAD;
+        private final long startEpochSecond;
+        private final long endEpochSecond;
+        private final long chunkDurationInS;
+        private final long chunkCount;
+        private long nextChunkIndex = 0;
+        private final Deque<Future<TimestampedValueGroupBatch>> pendingChunks = new ArrayDeque<>();
+
+        public ChunkIterator(MeasureGenerationRequest request) {
+
+            this.request = request;
+
+            RandomGeneratorAlgorithm algorithm = request.getRandomGeneratorAlgorithm() != null
+                    ? request.getRandomGeneratorAlgorithm()
+                    : SPLITMIX64;
+
+            this.randomGenerator = algorithm.newInstance(request.getSeed() != null ? request.getSeed() : newSeed());
+
+            for (Map.Entry<String, BoundedRandomVariableTrend> trendEntry : request.getTrends().entrySet()) {
+                if (trendEntry.getValue().getSeed() != null) {
+                    seededTrendRandomGenerators.put(trendEntry.getKey(),
+                            algorithm.newInstance(trendEntry.getValue().getSeed()));
+                }
+            }
+
+            this.startEpochSecond = request.getStartDateTime().toEpochSecond();
+            this.endEpochSecond = getExclusiveEndEpochSecond(request);
+
+            // the chunks cover the epoch seconds that can be generated, which include the last second of the end date
+            // time if its nano-of-second is after that of the start date time
+            long totalDurationInS = endEpochSecond - startEpochSecond;
+
+            this.chunkDurationInS =
+                    Math.max(1, request.getMeanInterPointDuration().getSeconds() * MEAN_VALUE_GROUPS_PER_CHUNK);
+            this.chunkCount = totalDurationInS <= 0 ? 0 : (totalDurationInS + chunkDurationInS - 1) / chunkDurationInS;
+        }
+
+        @Override
+        protected TimestampedValueGroupBatch computeNext() {
+
+            while (pendingChunks.size() < maximumPendingChunks && nextChunkIndex < chunkCount) {
+                pendingChunks.add(scheduleChunk(nextChunkIndex++));
+            }
+
+            if (pendingChunks.isEmpty()) {
+                return endOfData();
+            }
+
+            return getUnchecked(pendingChunks.remove());
+        }
 
-        long totalDurationInS = Duration.between(request.getStartDateTime(), request.getEndDateTime()).getSeconds();
+        private Future<TimestampedValueGroupBatch> scheduleChunk(long chunkIndex) {
 
-        OffsetDateTime effectiveDateTime = request.getStartDateTime();
-        List<TimestampedValueGroup> timestampedValueGroups = new ArrayList<>();
+            long chunkStartEpochSecond = startEpochSecond + chunkIndex * chunkDurationInS;
+            long chunkEndEpochSecond = Math.min(chunkStartEpochSecond + chunkDurationInS, endEpochSecond);
+
+            // streams are split off in chunk order on this thread, so a chunk gets the same streams whichever thread
+            // generates it, and each trend gets a stream of its own
+            SplittableRandomGenerator chunkRandomGenerator = randomGenerator.split();
+            Map<String, RandomGenerator> trendRandomGenerators = new HashMap<>();
+
+            for (String key : request.getTrends().keySet()) {
+
+                SplittableRandomGenerator seededTrendRandomGenerator = seededTrendRandomGenerators.get(key);
+
+                trendRandomGenerators.put(key, seededTrendRandomGenerator != null
+                        ? seededTrendRandomGenerator.split()
+                        : chunkRandomGenerator.split());
+            }
+
+            if (executorService == null) {
+                return immediateFuture(generateChunk(request, chunkStartEpochSecond, chunkEndEpochSecond,
+                        chunkRandomGenerator, trendRandomGenerators));
+            }
+
+            return executorService.submit(() -> generateChunk(request, chunkStartEpochSecond, chunkEndEpochSecond,
+                    chunkRandomGenerator, trendRandomGenerators));
+        }
+    }
+
+    /**
+     * Every timestamp generated for a request shares the nano-of-second of its start date time, so a timestamp is
+     * before the end date time exactly when its epoch second is before the returned one.
+     *
+     * @param request a request to generate measures
+     * @return the first epoch second whose timestamps aren't before the end date time of the request
+     */
+    private static long getExclusiveEndEpochSecond(MeasureGenerationRequest request) {
+
+        OffsetDateTime endDateTime = request.getEndDateTime();
+
+        return endDateTime.getNano() > request.getStartDateTime().getNano()
+                ? endDateTime.toEpochSecond() + 1
+                : endDateTime.toEpochSecond();
+    }
+
+    /**
+     * @param request a request to generate measures
+     * @param chunkStartEpochSecond the start of the chunk in seconds since the epoch
+     * @param chunkEndEpochSecond the end of the chunk in seconds since the epoch, exclusive
+     * @param randomGenerator the random number generator used to generate timestamps in the chunk
+     * @param trendRandomGenerators the random number generators used to generate trend values in the chunk, by key
+     * @return the value groups in the chunk, in timestamp order
+     */
+    private static TimestampedValueGroupBatch generateChunk(MeasureGenerationRequest request,
+            long chunkStartEpochSecond, long chunkEndEpochSecond, RandomGenerator randomGenerator,
+            Map<String, RandomGenerator> trendRandomGenerators) {
+
+        ChunkGenerationEvent event = new ChunkGenerationEvent();
+        event.begin();
+
+        // variates are drawn in blocks, so the loop below mostly reads from arrays
+        BlockVariateGenerator interPointDurationGenerator = new BlockVariateGenerator(randomGenerator);
+        double meanInterPointDurationInS = request.getMeanInterPointDuration().getSeconds();
+
+        // the trends are resolved to columns once, so the loop below doesn't look anything up by key
+        List<String> keys = new ArrayList<>(request.getTrends().keySet());
+        BoundedRandomVariableTrend[] trends = new BoundedRandomVariableTrend[keys.size()];
+        BlockVariateGenerator[] trendVariateGenerators = new BlockVariateGenerator[keys.size()];
+        int[] decimalPlaces = new int[keys.size()];
+        double[] minimumValues = new double[keys.size()];
+        double[] maximumValues = new double[keys.size()];
+
+        for (int column = 0; column < keys.size(); column++) {
+            trends[column] = request.getTrends().get(keys.get(column));
+            trendVariateGenerators[column] = new BlockVariateGenerator(trendRandomGenerators.get(keys.get(column)));
+
+            Integer trendDecimalPlaces = request.getDecimalPlaces(keys.get(column));
+            decimalPlaces[column] = trendDecimalPlaces != null ? trendDecimalPlaces : UNROUNDED;
+
+            // rounding keeps values within the bounds of their trends
+            BoundedRandomVariable variable = trends[column].getVariable();
+            minimumValues[column] = variable.getMinimumValue() != null ? variable.getMinimumValue() : NEGATIVE_INFINITY;
+            maximumValues[column] = variable.getMaximumValue() != null ? variable.getMaximumValue() : POSITIVE_INFINITY;
+        }
+
+        OffsetDateTime startDateTime = request.getStartDateTime();
+        long startEpochSecond = startDateTime.toEpochSecond();
+        long totalDurationInS = Duration.between(startDateTime, request.getEndDateTime()).getSeconds();
+
+        // timestamps are kept as epoch seconds, and only become date times if a generator asks the batch for them;
+        // the hour used to suppress night time measures is taken from the second of the day at the start offset
+        boolean suppressNightTimeMeasures =
+                request.isSuppressNightTimeMeasures() != null && request.isSuppressNightTimeMeasures();
+        int offsetInS = startDateTime.getOffset().getTotalSeconds();
+        int nightTimeStartSecondOfDay = NIGHT_TIME_START_HOUR * SECONDS_PER_HOUR;
+        int nightTimeEndSecondOfDay = NIGHT_TIME_END_HOUR * SECONDS_PER_HOUR;
+
+        long epochSecond = chunkStartEpochSecond;
+        TimestampedValueGroupBatch batch = new TimestampedValueGroupBatch(keys, startDateTime.getOffset(),
+                startDateTime.getNano(), (int) (MEAN_VALUE_GROUPS_PER_CHUNK + MEAN_VALUE_GROUPS_PER_CHUNK / 8));
+
+        for (int column = 0; column < keys.size(); column++) {
+            if (decimalPlaces[column] != UNROUNDED) {
+                batch.setDecimalPlaces(column, decimalPlaces[column]);
+            }
+        }
 
         do {
-            effectiveDateTime = effectiveDateTime.plus((long) interPointDurationDistribution.sample(), SECONDS);
+            long interPointDurationInS =
+                    (long) (meanInterPointDurationInS * interPointDurationGenerator.nextExponential());
+
+            epochSecond += interPointDurationInS;
 
-            if (!effectiveDateTime.isBefore(request.getEndDateTime())) {
+            if (epochSecond >= chunkEndEpochSecond) {
                 break;
             }
 
-            if (request.isSuppressNightTimeMeasures() != null && request.isSuppressNightTimeMeasures() &&
-                    (effectiveDateTime.getHour() >= NIGHT_TIME_START_HOUR ||
-                            effectiveDateTime.getHour() < NIGHT_TIME_END_HOUR)) {
-                continue;
+            if (suppressNightTimeMeasures) {
+
+                long secondOfDay = Math.floorMod(epochSecond + offsetInS, SECONDS_PER_DAY);
+
+                if (secondOfDay >= nightTimeStartSecondOfDay || secondOfDay < nightTimeEndSecondOfDay) {
+                    continue;
+                }
             }
 
-            TimestampedValueGroup valueGroup = new TimestampedValueGroup();
-            valueGroup.setTimestamp(effectiveDateTime);
+            int row = batch.addRow(epochSecond);
 
-            double trendProgressFraction = (double)
-                    Duration.between(request.getStartDateTime(), effectiveDateTime).getSeconds() / totalDurationInS;
+            double trendProgressFraction = (double) (epochSecond - startEpochSecond) / totalDurationInS;
 
-            for (Map.Entry<String, BoundedRandomVariableTrend> trendEntry : request.getTrends().entrySet()) {
+            for (int column = 0; column < trends.length; column++) {
 
-                String key = trendEntry.getKey();
-                BoundedRandomVariableTrend trend = trendEntry.getValue();
+                double value = trends[column].nextValue(trendProgressFraction, trendVariateGenerators[column]);
 
-                double value = trend.nextValue(trendProgressFraction);
-                valueGroup.setValue(key, value);
-            }
+                if (decimalPlaces[column] != UNROUNDED) {
+                    value = Decimals.round(value, decimalPlaces[column], minimumValues[column], maximumValues[column]);
+                }
 
-            timestampedValueGroups.add(valueGroup);
+                batch.setValue(row, column, value);
+            }
         }
         while (true);
 
-        return timestampedValueGroups;
+        if (event.shouldCommit()) {
+            event.setGeneratorName(request.getGeneratorName());
+            event.setUserId(request.getUserId());
+            event.setChunkStartDateTime(chunkStartEpochSecond * 1000 + startDateTime.getNano() / 1_000_000);
+            event.setValueGroupCount(batch.getSize());
+            event.commit();
+        }
+
+        return batch;
     }
 }
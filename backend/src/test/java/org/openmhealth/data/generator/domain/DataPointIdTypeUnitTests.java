@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.testng.annotations.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.openmhealth.data.generator.domain.DataPointIdType.TIME_ORDERED;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class DataPointIdTypeUnitTests {
+
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+
+
+    @Test
+    public void newTimeOrderedIdShouldSupportTimestampsBeforeEpoch() {
+
+        UUID id = UUID.fromString(TIME_ORDERED.newId(OffsetDateTime.parse("1965-06-01T12:00:00Z"), randomGenerator));
+        UUID laterId =
+                UUID.fromString(TIME_ORDERED.newId(OffsetDateTime.parse("1970-01-01T00:00:01Z"), randomGenerator));
+
+        assertThat(id.version(), equalTo(7));
+        assertThat(id.getMostSignificantBits() >>> 16, equalTo(0L));
+        assertThat(id.toString().compareTo(laterId.toString()), lessThan(0));
+    }
+
+    @Test
+    public void forNameShouldBeIndependentOfDefaultLocale() {
+
+        Locale defaultLocale = Locale.getDefault();
+
+        // upper-casing "i" in a Turkish locale yields a dotted capital "I"
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        try {
+            assertThat(DataPointIdType.forName("time-ordered"), equalTo(TIME_ORDERED));
+        }
+        finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class DecimalsUnitTests {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void roundShouldThrowExceptionOnNegativeDecimalPlaces() {
+        Decimals.round(72.83917264019374, -1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void roundShouldThrowExceptionOnTooManyDecimalPlaces() {
+        Decimals.round(72.83917264019374, Decimals.MAXIMUM_DECIMAL_PLACES + 1);
+    }
+
+    @Test
+    public void roundShouldReturnNearestDoubleToDecimal() {
+
+        assertThat(Double.toString(Decimals.round(72.83917264019374, 1)), equalTo("72.8"));
+        assertThat(Double.toString(Decimals.round(72.85, 1)), equalTo("72.9"));
+        assertThat(Double.toString(Decimals.round(-72.83917264019374, 2)), equalTo("-72.84"));
+        assertThat(Double.toString(Decimals.round(7234.5, 0)), equalTo("7235.0"));
+        assertThat(Double.toString(Decimals.round(0.1 + 0.2, 9)), equalTo("0.3"));
+    }
+
+    @Test
+    public void roundShouldRoundNegativeTiesAwayFromZero() {
+
+        assertThat(Decimals.round(-2.5, 0), equalTo(-3.0));
+        assertThat(Decimals.round(-0.25, 1), equalTo(-0.3));
+        assertThat(Decimals.round(-7234.5, 0), equalTo(-7235.0));
+        assertThat(Decimals.round(-0.49999999999999994, 0), equalTo(0.0));
+    }
+
+    @Test
+    public void roundShouldRoundTowardsInsideOfBounds() {
+
+        assertThat(Decimals.round(59.97, 1, 50, 59.99), equalTo(59.9));
+        assertThat(Decimals.round(50.02, 1, 50.01, 60), equalTo(50.1));
+        assertThat(Decimals.round(55.55, 1, 50, 60), equalTo(55.6));
+    }
+
+    @Test
+    public void roundShouldReturnLargeValuesUnchanged() {
+        assertThat(Decimals.round(1e300, 9), equalTo(1e300));
+    }
+
+    @Test
+    public void toBigDecimalShouldHaveDecimalPlacesAsScale() {
+
+        assertThat(Decimals.toBigDecimal(72.83917264019374, 1).toString(), equalTo("72.8"));
+        assertThat(Decimals.toBigDecimal(72.0, 1).toString(), equalTo("72.0"));
+        assertThat(Decimals.toBigDecimal(7234.5, 0).toString(), equalTo("7235"));
+        assertThat(Decimals.toBigDecimal(-0.005, 2), equalTo(new BigDecimal("-0.01")));
+        assertThat(Decimals.toBigDecimal(-0.004, 2), equalTo(new BigDecimal("0.00")));
+        assertThat(Decimals.toBigDecimal(1e20, 2), equalTo(new BigDecimal("1e20").setScale(2)));
+    }
+
+    @Test
+    public void toBigDecimalShouldRoundLikeBigDecimalHalfUp() {
+
+        for (double value : new double[] {-2.5, -0.25, -72.85, -1234.5675, 0.25, 72.85, 1234.5675}) {
+            for (int decimalPlaces = 0; decimalPlaces <= 3; decimalPlaces++) {
+                assertThat(Decimals.toBigDecimal(value, decimalPlaces),
+                        equalTo(BigDecimal.valueOf(value).setScale(decimalPlaces, RoundingMode.HALF_UP)));
+            }
+        }
+    }
+}
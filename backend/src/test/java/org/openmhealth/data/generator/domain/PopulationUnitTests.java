@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.domain;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class PopulationUnitTests {
+
+    private static final String GENERATOR_NAME = "body-weight";
+    private static final String KEY = "weight-in-kg";
+
+    private Population population;
+    private MeasureGenerationRequest request;
+
+
+    @BeforeMethod
+    public void initializeFixture() {
+
+        TrendVariation trendVariation = new TrendVariation();
+        trendVariation.setStartValue(new BoundedRandomVariable(10.0, 40.0, 150.0));
+
+        population = new Population();
+        population.setUserCount(1000L);
+        population.setUserIdPattern("user-%04d");
+        population.setTrendVariations(
+                Collections.singletonMap(GENERATOR_NAME, Collections.singletonMap(KEY, trendVariation)));
+
+        request = new MeasureGenerationRequest();
+        request.setGeneratorName(GENERATOR_NAME);
+        request.setSeed(42L);
+        request.addTrend(KEY, new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0), 80.0, 70.0));
+    }
+
+    @Test
+    public void newUserRequestShouldSetUserId() {
+
+        assertThat(population.newUserRequest(request, 7).getUserId(), equalTo("user-0007"));
+    }
+
+    @Test
+    public void newUserRequestShouldBeReproducible() {
+
+        MeasureGenerationRequest userRequest = population.newUserRequest(request, 7);
+        MeasureGenerationRequest sameUserRequest = population.newUserRequest(request, 7);
+
+        assertThat(sameUserRequest.getSeed(), equalTo(userRequest.getSeed()));
+        assertThat(sameUserRequest.getTrends().get(KEY).getStartValue(),
+                equalTo(userRequest.getTrends().get(KEY).getStartValue()));
+    }
+
+    @Test
+    public void newUserRequestShouldVaryAcrossUsers() {
+
+        MeasureGenerationRequest userRequest = population.newUserRequest(request, 7);
+        MeasureGenerationRequest otherUserRequest = population.newUserRequest(request, 8);
+
+        assertThat(otherUserRequest.getSeed(), not(equalTo(userRequest.getSeed())));
+        assertThat(otherUserRequest.getTrends().get(KEY).getStartValue(),
+                not(equalTo(userRequest.getTrends().get(KEY).getStartValue())));
+
+        // only the start value is configured to vary
+        assertThat(otherUserRequest.getTrends().get(KEY).getEndValue(), equalTo(70.0));
+    }
+
+    @Test
+    public void newUserRequestShouldNotModifyRequest() {
+
+        population.newUserRequest(request, 7);
+
+        assertThat(request.getUserId(), nullValue());
+        assertThat(request.getSeed(), equalTo(42L));
+        assertThat(request.getTrends().get(KEY).getStartValue(), equalTo(80.0));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class SplittableRandomGeneratorUnitTests {
+
+    @DataProvider(name = "algorithms")
+    public Object[][] newAlgorithms() {
+
+        RandomGeneratorAlgorithm[] algorithms = RandomGeneratorAlgorithm.values();
+        Object[][] parameters = new Object[algorithms.length][];
+
+        for (int i = 0; i < algorithms.length; i++) {
+            parameters[i] = new Object[] {algorithms[i]};
+        }
+
+        return parameters;
+    }
+
+    @Test(dataProvider = "algorithms")
+    public void nestedSplitsShouldNotShareVariates(RandomGeneratorAlgorithm algorithm) {
+
+        SplittableRandomGenerator requestRandomGenerator = algorithm.newInstance(42);
+        Set<Long> variates = new HashSet<>();
+
+        // this splits the way the chunks of a request are split, i.e. each chunk off the request, then each trend
+        // off the chunk, with the chunk itself drawing inter-point durations afterwards
+        for (int chunk = 0; chunk < 4; chunk++) {
+
+            SplittableRandomGenerator chunkRandomGenerator = requestRandomGenerator.split();
+            SplittableRandomGenerator[] streams = {
+                    chunkRandomGenerator.split(),
+                    chunkRandomGenerator.split(),
+                    chunkRandomGenerator
+            };
+
+            for (SplittableRandomGenerator stream : streams) {
+                for (int i = 0; i < 10_000; i++) {
+
+                    long variate = stream.nextLong();
+
+                    assertThat(algorithm + " variate " + variate + " of chunk " + chunk + " is shared",
+                            variates.add(variate), equalTo(true));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class TruncatedNormalSamplerUnitTests {
+
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+
+
+    @DataProvider(name = "bounds")
+    public Object[][] newBounds() {
+
+        return new Object[][] {
+                {0.0, 1.0, -1.0, 1.0}, // mean inside the bounds
+                {0.0, 1.0, 2.0, 3.0}, // mean just below the bounds
+                {0.0, 1.0, -3.0, -2.99}, // mean just above narrow bounds
+                {1e6, 1.0, 0.0, 1.0}, // mean far above the bounds
+                {-1e6, 1.0, 0.0, Double.POSITIVE_INFINITY}, // mean far below a single bound
+                {0.0, 1e-300, 1.0, 2.0}, // negligible standard deviation
+        };
+    }
+
+    @Test(dataProvider = "bounds")
+    public void sampleShouldReturnValuesWithinBounds(double mean, double standardDeviation, double minimumValue,
+            double maximumValue) {
+
+        for (int i = 0; i < 10_000; i++) {
+            double value = TruncatedNormalSampler.sample(randomGenerator, mean, standardDeviation, minimumValue,
+                    maximumValue);
+
+            assertThat(value, greaterThanOrEqualTo(minimumValue));
+            assertThat(value, lessThanOrEqualTo(maximumValue));
+        }
+    }
+
+    @Test
+    public void sampleShouldFollowTruncatedDistribution() {
+
+        double sum = 0;
+        int count = 100_000;
+
+        for (int i = 0; i < count; i++) {
+            sum += TruncatedNormalSampler.sample(randomGenerator, 0, 1, 30, Double.POSITIVE_INFINITY);
+        }
+
+        // the mean of a standard normal tail beyond a is close to a + 1/a
+        assertThat(sum / count, closeTo(30 + 1.0 / 30, 1e-3));
+    }
+
+    @Test
+    public void sampleShouldClampMeanWhenStandardDeviationIsZero() {
+
+        assertThat(TruncatedNormalSampler.sample(randomGenerator, 10, 0, 0, 1), equalTo(1.0));
+        assertThat(TruncatedNormalSampler.sample(randomGenerator, 0.5, 0, 0, 1), equalTo(0.5));
+    }
+
+    @Test
+    public void getProbabilityMassShouldWork() {
+
+        assertThat(TruncatedNormalSampler.getProbabilityMass(0, 1, -1, 1), closeTo(0.682689, 1e-6));
+        assertThat(TruncatedNormalSampler.getProbabilityMass(0, 1, 2, 3), closeTo(0.021400, 1e-6));
+        assertThat(TruncatedNormalSampler.getProbabilityMass(0, 1, 40, 41), lessThan(1e-300));
+        assertThat(TruncatedNormalSampler.getProbabilityMass(0, 0, -1, 1), equalTo(1.0));
+    }
+}
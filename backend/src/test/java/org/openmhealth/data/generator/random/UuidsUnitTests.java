@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class UuidsUnitTests {
+
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+
+
+    @Test
+    public void toStringShouldMatchUuid() {
+
+        for (int i = 0; i < 1000; i++) {
+            long mostSignificantBits = randomGenerator.nextLong();
+            long leastSignificantBits = randomGenerator.nextLong();
+
+            assertThat(Uuids.toString(mostSignificantBits, leastSignificantBits),
+                    equalTo(new UUID(mostSignificantBits, leastSignificantBits).toString()));
+        }
+    }
+
+    @Test
+    public void newRandomUuidShouldReturnVersion4Uuid() {
+
+        UUID uuid = UUID.fromString(Uuids.newRandomUuid(randomGenerator));
+
+        assertThat(uuid.version(), equalTo(4));
+        assertThat(uuid.variant(), equalTo(2));
+    }
+
+    @Test
+    public void newTimeOrderedUuidShouldReturnVersion7UuidStartingWithTimestamp() {
+
+        long epochMilli = 1388577600000L; // 2014-01-01T12:00:00Z
+
+        UUID uuid = UUID.fromString(Uuids.newTimeOrderedUuid(epochMilli, randomGenerator));
+
+        assertThat(uuid.version(), equalTo(7));
+        assertThat(uuid.variant(), equalTo(2));
+        assertThat(uuid.getMostSignificantBits() >>> 16, equalTo(epochMilli));
+    }
+
+    @Test
+    public void newTimeOrderedUuidShouldSortInTimestampOrder() {
+
+        String earlierUuid = Uuids.newTimeOrderedUuid(1388577600000L, randomGenerator);
+        String laterUuid = Uuids.newTimeOrderedUuid(1388577600001L, randomGenerator);
+
+        assertThat(earlierUuid, lessThan(laterUuid));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class ZigguratSamplerUnitTests {
+
+    private static final int SAMPLE_COUNT = 1_000_000;
+
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+
+
+    @Test
+    public void nextStandardNormalShouldFollowStandardNormalDistribution() {
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        int tailCount = 0;
+
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double variate = ZigguratSampler.nextStandardNormal(randomGenerator);
+
+            sum += variate;
+            sumOfSquares += variate * variate;
+
+            if (Math.abs(variate) > 3) {
+                tailCount++;
+            }
+        }
+
+        assertThat(sum / SAMPLE_COUNT, closeTo(0, 0.01));
+        assertThat(sumOfSquares / SAMPLE_COUNT, closeTo(1, 0.01));
+        assertThat((double) tailCount / SAMPLE_COUNT, closeTo(0.0027, 0.0003));
+    }
+
+    @Test
+    public void nextStandardExponentialShouldFollowStandardExponentialDistribution() {
+
+        double sum = 0;
+        int tailCount = 0;
+
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double variate = ZigguratSampler.nextStandardExponential(randomGenerator);
+
+            sum += variate;
+
+            if (variate > 5) {
+                tailCount++;
+            }
+        }
+
+        assertThat(sum / SAMPLE_COUNT, closeTo(1, 0.01));
+        assertThat((double) tailCount / SAMPLE_COUNT, closeTo(Math.exp(-5), 0.0005));
+    }
+
+    @Test
+    public void blockVariateGeneratorShouldServeSameVariatesAsSampler() {
+
+        BlockVariateGenerator blockVariateGenerator =
+                new BlockVariateGenerator(new SplitMix64RandomGenerator(7), 16);
+        RandomGenerator referenceRandomGenerator = new SplitMix64RandomGenerator(7);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(blockVariateGenerator.nextGaussian(),
+                    equalTo(ZigguratSampler.nextStandardNormal(referenceRandomGenerator)));
+        }
+    }
+}
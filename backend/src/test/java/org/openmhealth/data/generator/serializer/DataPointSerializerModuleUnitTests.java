@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.configuration.JacksonConfiguration;
+import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.openmhealth.data.generator.service.*;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.Measure;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class DataPointSerializerModuleUnitTests {
+
+    private ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private ObjectMapper schemaObjectMapper =
+            org.openmhealth.schema.configuration.JacksonConfiguration.newObjectMapper();
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+    private BodyWeightDataPointGenerator bodyWeightGenerator;
+    private List<AbstractDataPointGeneratorImpl<?>> generators;
+
+
+    @BeforeMethod
+    public void initializeGenerators() {
+
+        bodyWeightGenerator = new BodyWeightDataPointGenerator();
+
+        generators = Arrays.asList(
+                new AmbientTemperatureDataPointGenerator(),
+                new BloodGlucoseDataPointGenerator(),
+                new BloodPressureDataPointGenerator(),
+                new BodyFatPercentageDataPointGenerator(),
+                new BodyHeightDataPointGenerator(),
+                new BodyTemperatureDataPointGenerator(),
+                bodyWeightGenerator,
+                new HeartRateDataPointGenerator(),
+                new MinutesModerateActivityDataPointGenerator(),
+                new PhysicalActivityDataPointGenerator(),
+                new SleepDurationDataPointGenerator(),
+                new StepCountDataPointGenerator());
+
+        for (AbstractDataPointGeneratorImpl<?> generator : generators) {
+            setField(generator, "defaultUserId", "some-user");
+            setField(generator, "sourceName", "generator");
+        }
+    }
+
+    @Test
+    public void serializationShouldMatchSchemaObjectMapper() throws IOException {
+
+        for (AbstractDataPointGeneratorImpl<?> generator : generators) {
+            for (boolean optionalValues : new boolean[] {true, false}) {
+
+                TimestampedValueGroup valueGroup = new TimestampedValueGroup();
+                valueGroup.setTimestamp(OffsetDateTime.parse("2016-01-01T12:00:00.5+01:00"));
+
+                for (String key : optionalValues
+                        ? generator.getSupportedValueGroupKeys()
+                        : generator.getRequiredValueGroupKeys()) {
+                    valueGroup.setValue(key, 1 + randomGenerator.nextDouble() * 1000);
+                }
+
+                DataPoint<? extends Measure> dataPoint = newDataPoint(generator, valueGroup);
+
+                assertThat(generator.getName(), objectMapper.writeValueAsString(dataPoint),
+                        equalTo(schemaObjectMapper.writeValueAsString(dataPoint)));
+                assertThat(generator.getName(), objectMapper.writeValueAsString(dataPoint.getBody()),
+                        equalTo(schemaObjectMapper.writeValueAsString(dataPoint.getBody())));
+            }
+        }
+    }
+
+    @Test
+    public void serializationShouldIncludeAdditionalProperties() throws IOException {
+
+        TimestampedValueGroup valueGroup = new TimestampedValueGroup();
+        valueGroup.setTimestamp(OffsetDateTime.parse("2016-01-01T12:00:00Z"));
+        valueGroup.setValue(BodyWeightDataPointGenerator.WEIGHT_KEY, 60.5);
+
+        DataPoint<? extends Measure> dataPoint = newDataPoint(bodyWeightGenerator, valueGroup);
+
+        dataPoint.setAdditionalProperty("id", dataPoint.getHeader().getId());
+        dataPoint.setAdditionalProperty("some-property", null);
+
+        assertThat(objectMapper.writeValueAsString(dataPoint),
+                equalTo(schemaObjectMapper.writeValueAsString(dataPoint)));
+    }
+
+    @Test
+    public void dateTimeSerializationShouldMatchSchemaObjectMapper() throws IOException {
+
+        List<OffsetDateTime> dateTimes = Arrays.asList(
+                OffsetDateTime.parse("2016-01-01T12:00:00Z"),
+                OffsetDateTime.parse("2016-01-01T12:00:00.000012-05:00"),
+                OffsetDateTime.parse("2016-01-01T12:59:59.123456789+05:30"),
+                OffsetDateTime.parse("+10000-01-01T00:00:00Z"));
+
+        for (OffsetDateTime dateTime : dateTimes) {
+
+            assertThat(objectMapper.writeValueAsString(dateTime),
+                    equalTo(schemaObjectMapper.writeValueAsString(dateTime)));
+
+            // date times written as timestamps are left to the Java time module
+            assertThat(objectMapper.writer().with(WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(dateTime),
+                    equalTo(schemaObjectMapper.writer().with(WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(dateTime)));
+        }
+    }
+
+    private <T extends Measure> DataPoint<T> newDataPoint(AbstractDataPointGeneratorImpl<T> generator,
+            TimestampedValueGroup valueGroup) {
+
+        return generator.newDataPoint(generator.newMeasure(valueGroup), randomGenerator);
+    }
+}
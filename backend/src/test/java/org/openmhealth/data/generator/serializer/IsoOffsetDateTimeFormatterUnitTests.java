@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.serializer;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class IsoOffsetDateTimeFormatterUnitTests {
+
+    private IsoOffsetDateTimeFormatter formatter = new IsoOffsetDateTimeFormatter();
+
+
+    @DataProvider(name = "dateTimes")
+    public Object[][] newDateTimes() {
+
+        return new Object[][] {
+                {OffsetDateTime.of(2016, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC)},
+                {OffsetDateTime.of(2016, 6, 30, 23, 59, 59, 500_000_000, ZoneOffset.ofHours(-5))},
+                {OffsetDateTime.of(2016, 12, 31, 0, 30, 15, 123_456_789, ZoneOffset.ofHoursMinutes(5, 30))},
+                {OffsetDateTime.of(2016, 2, 29, 9, 5, 7, 1_200, ZoneOffset.ofHoursMinutesSeconds(1, 2, 3))},
+                {OffsetDateTime.of(2016, 2, 29, 9, 5, 7, 1, ZoneOffset.MAX)},
+                {OffsetDateTime.of(0, 1, 1, 0, 0, 0, 0, ZoneOffset.MIN)},
+                {OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999, ZoneOffset.UTC)},
+                {OffsetDateTime.of(10000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)},
+                {OffsetDateTime.of(-1, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)},
+                {OffsetDateTime.MAX},
+                {OffsetDateTime.MIN},
+        };
+    }
+
+    @Test(dataProvider = "dateTimes")
+    public void formatShouldMatchIsoOffsetDateTimeFormatter(OffsetDateTime dateTime) {
+
+        assertThat(format(dateTime), equalTo(ISO_OFFSET_DATE_TIME.format(dateTime)));
+    }
+
+    @Test
+    public void formatShouldMatchIsoOffsetDateTimeFormatterForConsecutiveDateTimes() {
+
+        RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+        ZoneOffset[] offsets = {ZoneOffset.UTC, ZoneOffset.ofHours(-5), ZoneOffset.ofHoursMinutes(5, 30)};
+        OffsetDateTime dateTime = OffsetDateTime.of(2015, 12, 31, 22, 0, 0, 0, ZoneOffset.UTC);
+
+        // the steps mostly stay within the same hour, so the cached prefix is both reused and replaced
+        for (int i = 0; i < 100_000; i++) {
+
+            dateTime = dateTime.plusSeconds(randomGenerator.nextInt(900))
+                    .withNano(randomGenerator.nextBoolean() ? 0 : randomGenerator.nextInt(1_000_000_000));
+
+            if (randomGenerator.nextInt(100) == 0) {
+                dateTime = dateTime.withOffsetSameInstant(offsets[randomGenerator.nextInt(offsets.length)]);
+            }
+
+            assertThat(format(dateTime), equalTo(ISO_OFFSET_DATE_TIME.format(dateTime)));
+        }
+    }
+
+    private String format(OffsetDateTime dateTime) {
+
+        int length = formatter.format(dateTime);
+
+        return new String(formatter.getBuffer(), 0, length);
+    }
+}
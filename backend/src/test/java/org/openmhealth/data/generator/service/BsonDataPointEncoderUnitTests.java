@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.openmhealth.data.generator.configuration.JacksonConfiguration;
+import org.openmhealth.schema.domain.omh.BodyWeight;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.DataPointHeader;
+import org.openmhealth.schema.domain.omh.MassUnitValue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class BsonDataPointEncoderUnitTests {
+
+    private static final OffsetDateTime EFFECTIVE_DATE_TIME = OffsetDateTime.parse("2016-01-01T12:00:00+01:00");
+
+    private ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private BsonDataPointEncoder encoder;
+    private BsonDocument document;
+
+
+    @BeforeMethod
+    public void encodeDataPoint() throws IOException {
+
+        encoder = new BsonDataPointEncoder(objectMapper);
+
+        BodyWeight bodyWeight = new BodyWeight.Builder(new MassUnitValue(KILOGRAM, 60.5))
+                .setEffectiveTimeFrame(EFFECTIVE_DATE_TIME)
+                .build();
+
+        DataPointHeader header = new DataPointHeader.Builder("some-id", bodyWeight.getSchemaId(), EFFECTIVE_DATE_TIME)
+                .setUserId("some-user")
+                .build();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int length = encoder.encode(new DataPoint<>(header, bodyWeight), outputStream);
+
+        assertThat(outputStream.size(), equalTo(length));
+
+        document = new RawBsonDocument(outputStream.toByteArray());
+    }
+
+    @Test
+    public void encodeShouldUseHeaderIdAsDocumentId() {
+
+        assertThat(document.getFirstKey(), equalTo("_id"));
+        assertThat(document.get("_id").asString().getValue(), equalTo("some-id"));
+    }
+
+    @Test
+    public void encodeShouldEncodeDateTimesAsDates() {
+
+        assertThat(document.getDocument("header").get("creation_date_time").isDateTime(), equalTo(true));
+        assertThat(document.getDocument("header").get("creation_date_time").asDateTime().getValue(),
+                equalTo(EFFECTIVE_DATE_TIME.toInstant().toEpochMilli()));
+    }
+
+    @Test
+    public void encodeShouldEncodeDecimalsAsDoubles() {
+
+        assertThat(document.getDocument("body").getDocument("body_weight").get("value").isDouble(), equalTo(true));
+        assertThat(document.getDocument("body").getDocument("body_weight").get("unit").isString(), equalTo(true));
+    }
+
+    @Test
+    public void encoderShouldNotChangeMapperOfDataPoints() throws IOException {
+        assertThat(objectMapper.writeValueAsString(EFFECTIVE_DATE_TIME), equalTo("\"2016-01-01T12:00:00+01:00\""));
+    }
+}
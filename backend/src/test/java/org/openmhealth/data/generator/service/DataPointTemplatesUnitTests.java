@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openmhealth.data.generator.configuration.JacksonConfiguration;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class DataPointTemplatesUnitTests {
+
+    private static final int DATA_POINT_COUNT = 100;
+    private static final long START_EPOCH_SECOND = OffsetDateTime.parse("2016-01-01T12:00:00Z").toEpochSecond();
+
+    private ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private List<AbstractDataPointGeneratorImpl<?>> generators;
+    private DataPointTemplateWriter templateWriter;
+
+
+    @BeforeMethod
+    public void initializeTemplates() throws IOException {
+
+        generators = Arrays.asList(
+                new AmbientTemperatureDataPointGenerator(),
+                new BloodGlucoseDataPointGenerator(),
+                new BloodPressureDataPointGenerator(),
+                new BodyFatPercentageDataPointGenerator(),
+                new BodyHeightDataPointGenerator(),
+                new BodyTemperatureDataPointGenerator(),
+                new BodyWeightDataPointGenerator(),
+                new HeartRateDataPointGenerator(),
+                new MinutesModerateActivityDataPointGenerator(),
+                new PhysicalActivityDataPointGenerator(),
+                new SleepDurationDataPointGenerator(),
+                new StepCountDataPointGenerator());
+
+        for (AbstractDataPointGeneratorImpl<?> generator : generators) {
+            setField(generator, "defaultUserId", "some-user");
+            setField(generator, "sourceName", "some \"quoted\" sourc\u00e9");
+        }
+
+        DataPointTemplates templates = new DataPointTemplates();
+
+        setField(templates, "objectMapper", objectMapper);
+        setField(templates, "dataPointGenerators", new ArrayList<>(generators));
+        setField(templates, "enabled", true);
+        templates.initializeDefinitions();
+
+        templateWriter = templates.newWriter();
+    }
+
+    @DataProvider(name = "offsets")
+    public Object[][] newOffsets() {
+
+        return new Object[][] {
+                {ZoneOffset.UTC, 0},
+                {ZoneOffset.ofHours(-5), 500_000_000},
+                {ZoneOffset.ofHoursMinutes(5, 30), 123_456_789},
+        };
+    }
+
+    @Test(dataProvider = "offsets")
+    public void writeLineShouldMatchObjectMapper(ZoneOffset offset, int nanoOfSecond) throws IOException {
+
+        for (AbstractDataPointGeneratorImpl<?> generator : generators) {
+            assertTemplatesMatchObjectMapper(generator, generator.getSupportedValueGroupKeys(), offset, nanoOfSecond);
+        }
+    }
+
+    @Test
+    public void writeLineShouldMatchObjectMapperWithoutOptionalValues() throws IOException {
+
+        for (AbstractDataPointGeneratorImpl<?> generator : generators) {
+            assertTemplatesMatchObjectMapper(generator, generator.getRequiredValueGroupKeys(), ZoneOffset.UTC, 0);
+        }
+    }
+
+    private void assertTemplatesMatchObjectMapper(AbstractDataPointGeneratorImpl<?> generator, Set<String> keys,
+            ZoneOffset offset, int nanoOfSecond) throws IOException {
+
+        RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+
+        TimestampedValueGroupBatch batch =
+                new TimestampedValueGroupBatch(new ArrayList<>(keys), offset, nanoOfSecond, DATA_POINT_COUNT);
+
+        for (int i = 0; i < DATA_POINT_COUNT; i++) {
+
+            // the timestamps include whole minutes, whose seconds are written even though they're zero
+            int row = batch.addRow(START_EPOCH_SECOND + i * 60L + (i % 2 == 0 ? 0 : randomGenerator.nextInt(60)));
+
+            for (int column = 0; column < keys.size(); column++) {
+                batch.setValue(row, column, 1 + randomGenerator.nextDouble() * 1000);
+            }
+        }
+
+        for (DataPoint<?> dataPoint : generator.generateDataPoints(batch, null, randomGenerator)) {
+
+            dataPoint.setAdditionalProperty("id", dataPoint.getHeader().getId());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            assertThat(generator.getName(), templateWriter.writeLine(dataPoint, outputStream), equalTo(true));
+            assertThat(generator.getName(), new String(outputStream.toByteArray(), UTF_8),
+                    equalTo(objectMapper.writeValueAsString(dataPoint) + "\n"));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.openmhealth.data.generator.domain.DataPointBatch;
+import org.openmhealth.data.generator.metrics.GeneratorMetrics;
+import org.openmhealth.data.generator.metrics.RunMetrics;
+import org.openmhealth.schema.domain.omh.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class InstrumentedDataPointWritingServiceUnitTests {
+
+    private static final long BYTES_PER_DATA_POINT = 100;
+    private static final long IO_TIME_PER_DATA_POINT_IN_NS = 10;
+
+    private DataPoint<BodyWeight> dataPoint;
+    private RunMetrics runMetrics;
+    private InstrumentedDataPointWritingService writingService;
+
+
+    /**
+     * A service that pretends to write a fixed number of bytes per data point and to take a fixed time doing so.
+     */
+    private static class CountingDataPointWritingService implements DataPointWritingService {
+
+        private long byteCount = 0;
+        private long ioTimeInNs = 0;
+
+        @Override
+        public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) {
+
+            long written = 0;
+
+            for (DataPoint<?> dataPoint : dataPoints) {
+                byteCount += BYTES_PER_DATA_POINT;
+                ioTimeInNs += IO_TIME_PER_DATA_POINT_IN_NS;
+                written++;
+            }
+
+            return written;
+        }
+
+        @Override
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        @Override
+        public long getIoTimeInNs() {
+            return ioTimeInNs;
+        }
+    }
+
+    @BeforeMethod
+    public void initializeWritingService() {
+
+        OffsetDateTime effectiveDateTime = OffsetDateTime.parse("2016-01-01T12:00:00Z");
+
+        BodyWeight bodyWeight = new BodyWeight.Builder(new MassUnitValue(KILOGRAM, 60))
+                .setEffectiveTimeFrame(effectiveDateTime)
+                .build();
+
+        dataPoint = new DataPoint<>(
+                new DataPointHeader.Builder("id", bodyWeight.getSchemaId(), effectiveDateTime).build(), bodyWeight);
+
+        runMetrics = new RunMetrics();
+        writingService = new InstrumentedDataPointWritingService(new CountingDataPointWritingService(), runMetrics);
+    }
+
+    private DataPointBatch newBatch(String generatorName, int size) {
+
+        DataPointBatch batch = new DataPointBatch(generatorName, size);
+
+        for (int i = 0; i < size; i++) {
+            batch.add(dataPoint);
+        }
+
+        return batch;
+    }
+
+    @Test
+    public void writeDataPointsShouldAttributeBatchesToTheirGenerators() throws Exception {
+
+        assertThat(writingService.writeDataPoints(newBatch("body-weight", 3)), equalTo(3L));
+        assertThat(writingService.writeDataPoints(newBatch("heart-rate", 2)), equalTo(2L));
+        assertThat(writingService.writeDataPoints(newBatch("body-weight", 1)), equalTo(1L));
+
+        GeneratorMetrics bodyWeightMetrics = runMetrics.getGeneratorMetrics("body-weight");
+
+        assertThat(bodyWeightMetrics.getByteCount(), equalTo(4 * BYTES_PER_DATA_POINT));
+        assertThat(bodyWeightMetrics.getWritingTimeInNs(), equalTo(4 * IO_TIME_PER_DATA_POINT_IN_NS));
+
+        GeneratorMetrics heartRateMetrics = runMetrics.getGeneratorMetrics("heart-rate");
+
+        assertThat(heartRateMetrics.getByteCount(), equalTo(2 * BYTES_PER_DATA_POINT));
+        assertThat(heartRateMetrics.getWritingTimeInNs(), equalTo(2 * IO_TIME_PER_DATA_POINT_IN_NS));
+        assertThat(heartRateMetrics.getSerializationTimeInNs(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void writeDataPointsShouldAttributeOtherIterablesToUnknownGenerator() throws Exception {
+
+        writingService.writeDataPoints(Collections.singletonList(dataPoint));
+
+        assertThat(runMetrics.getGeneratorMetrics(InstrumentedDataPointWritingService.UNKNOWN_GENERATOR_NAME)
+                .getByteCount(), equalTo(BYTES_PER_DATA_POINT));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.mockito.ArgumentCaptor;
+import org.openmhealth.data.generator.configuration.JacksonConfiguration;
+import org.openmhealth.schema.domain.omh.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class MongoDataPointBulkWriterUnitTests {
+
+    private ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private MongoCollection<RawBsonDocument> collection;
+
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void initializeCollection() {
+        collection = mock(MongoCollection.class);
+    }
+
+    private List<DataPoint<BodyWeight>> newDataPoints(int count) {
+
+        List<DataPoint<BodyWeight>> dataPoints = new ArrayList<>();
+        OffsetDateTime effectiveDateTime = OffsetDateTime.parse("2016-01-01T12:00:00Z");
+
+        for (int i = 0; i < count; i++) {
+            BodyWeight bodyWeight = new BodyWeight.Builder(new MassUnitValue(KILOGRAM, 60))
+                    .setEffectiveTimeFrame(effectiveDateTime.plusHours(i))
+                    .build();
+
+            DataPointHeader header =
+                    new DataPointHeader.Builder("id-" + i, bodyWeight.getSchemaId(), effectiveDateTime.plusHours(i))
+                            .build();
+
+            dataPoints.add(new DataPoint<>(header, bodyWeight));
+        }
+
+        return dataPoints;
+    }
+
+    @Test
+    public void newDocumentShouldUseHeaderIdAsDocumentId() throws IOException {
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 10, 1, 1);
+
+        RawBsonDocument document = writer.newDocument(newDataPoints(1).get(0));
+
+        assertThat(document.getFirstKey(), equalTo("_id"));
+        assertThat(document.get("_id").asString().getValue(), equalTo("id-0"));
+        assertThat(document.keySet(), hasItems("header", "body"));
+    }
+
+    @Test
+    public void newDocumentShouldBeEncodableByDriver() throws IOException {
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 10, 1, 1);
+
+        RawBsonDocument document = writer.newDocument(newDataPoints(1).get(0));
+
+        // the driver encodes inserted documents using the codec registered for their class
+        BasicOutputBuffer outputBuffer = new BasicOutputBuffer();
+
+        try (BsonBinaryWriter bsonWriter = new BsonBinaryWriter(outputBuffer)) {
+            MongoClient.getDefaultCodecRegistry().get(RawBsonDocument.class)
+                    .encode(bsonWriter, document, EncoderContext.builder().build());
+        }
+
+        BsonDocument encodedDocument = new RawBsonDocument(outputBuffer.toByteArray());
+
+        assertThat(encodedDocument.getDocument("header").get("creation_date_time").isDateTime(), equalTo(true));
+        assertThat(encodedDocument.getDocument("body").getDocument("body_weight").get("value").isDouble(),
+                equalTo(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writeShouldInsertUnorderedBatches() throws Exception {
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 3, 2, 2);
+
+        assertThat(writer.write(newDataPoints(7)), equalTo(7L));
+        writer.close();
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<InsertManyOptions> insertOptions = ArgumentCaptor.forClass(InsertManyOptions.class);
+
+        verify(collection, times(3)).insertMany(batches.capture(), insertOptions.capture());
+
+        List<Integer> batchSizes = new ArrayList<>();
+
+        for (List batch : batches.getAllValues()) {
+            batchSizes.add(batch.size());
+        }
+
+        assertThat(batchSizes, containsInAnyOrder(3, 3, 1));
+
+        for (InsertManyOptions options : insertOptions.getAllValues()) {
+            assertThat(options.isOrdered(), equalTo(false));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    @SuppressWarnings("unchecked")
+    public void awaitPendingBatchesShouldThrowInsertFailure() throws Exception {
+
+        doThrow(new IllegalStateException()).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 10, 1, 1);
+
+        writer.write(newDataPoints(1));
+        writer.awaitPendingBatches();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    @SuppressWarnings("unchecked")
+    public void flushShouldThrowEarlierInsertFailure() throws Exception {
+
+        doThrow(new IllegalStateException()).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 10, 1, 1);
+
+        writer.write(newDataPoints(1));
+
+        try {
+            writer.awaitPendingBatches();
+        }
+        catch (IllegalStateException e) {
+            // the failure is kept, so it's thrown again below
+        }
+
+        writer.flush();
+    }
+
+    @Test(timeOut = 10_000)
+    @SuppressWarnings("unchecked")
+    public void flushShouldNotWaitForPendingBatches() throws Exception {
+
+        CountDownLatch insertLatch = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            insertLatch.await();
+            return null;
+        }).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        MongoDataPointBulkWriter writer = new MongoDataPointBulkWriter(collection, objectMapper, 10, 1, 1);
+
+        writer.write(newDataPoints(1));
+
+        // the insertion can't finish until the latch is released, so this would never return if it waited
+        writer.flush();
+
+        insertLatch.countDown();
+        writer.close();
+
+        verify(collection).insertMany(anyList(), any(InsertManyOptions.class));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.google.common.io.ByteStreams;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class ParallelGzipOutputStreamUnitTests {
+
+    // the header and trailer of a gzip member
+    private static final int MEMBER_OVERHEAD = 18;
+
+
+    @Test
+    public void flushShouldNotEndMembers() throws IOException {
+
+        int lineCount = 1000;
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (ParallelGzipOutputStream gzipOutputStream = new ParallelGzipOutputStream(compressed, 6, 2, 64 * 1024)) {
+            for (int i = 0; i < lineCount; i++) {
+
+                byte[] line = ("{\"line\":" + i + "}\n").getBytes(UTF_8);
+
+                uncompressed.write(line);
+                gzipOutputStream.write(line, 0, line.length);
+
+                // this flushes as often as the file writers do in population mode
+                gzipOutputStream.flush();
+            }
+        }
+
+        // a member per flush would take more space than this on its own
+        assertThat(compressed.size(), lessThan(lineCount * MEMBER_OVERHEAD));
+
+        GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+
+        assertThat(ByteStreams.toByteArray(gzipInputStream), equalTo(uncompressed.toByteArray()));
+    }
+}
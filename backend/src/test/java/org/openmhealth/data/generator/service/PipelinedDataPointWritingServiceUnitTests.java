@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.openmhealth.schema.domain.omh.*;
+import org.testng.annotations.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class PipelinedDataPointWritingServiceUnitTests {
+
+    private static final OffsetDateTime EFFECTIVE_DATE_TIME = OffsetDateTime.parse("2016-01-01T12:00:00Z");
+
+
+    /**
+     * A service that records the identifiers of the data points it writes, and fails to write if asked to.
+     */
+    private static class RecordingDataPointWritingService implements DataPointWritingService {
+
+        private final List<String> ids = new ArrayList<>();
+        private final RuntimeException writeFailure;
+        private int closeCount = 0;
+
+        RecordingDataPointWritingService(RuntimeException writeFailure) {
+            this.writeFailure = writeFailure;
+        }
+
+        @Override
+        public long writeDataPoints(Iterable<? extends DataPoint<?>> dataPoints) {
+
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+
+            long written = 0;
+
+            for (DataPoint<?> dataPoint : dataPoints) {
+                ids.add(dataPoint.getHeader().getId());
+                written++;
+            }
+
+            return written;
+        }
+
+        @Override
+        public void close() {
+            closeCount++;
+        }
+    }
+
+    private DataPoint<BodyWeight> newDataPoint(String id) {
+
+        BodyWeight bodyWeight = new BodyWeight.Builder(new MassUnitValue(KILOGRAM, 60))
+                .setEffectiveTimeFrame(EFFECTIVE_DATE_TIME)
+                .build();
+
+        DataPointHeader header = new DataPointHeader.Builder(id, bodyWeight.getSchemaId(), EFFECTIVE_DATE_TIME).build();
+
+        return new DataPoint<>(header, bodyWeight);
+    }
+
+    @Test
+    public void writeDataPointsShouldKeepOrderOfEachProducer() throws Exception {
+
+        int producerCount = 4;
+        int batchesPerProducer = 1_000;
+
+        RecordingDataPointWritingService recordingService = new RecordingDataPointWritingService(null);
+        PipelinedDataPointWritingService pipelinedService = new PipelinedDataPointWritingService(recordingService, 8);
+        ExecutorService executorService = Executors.newFixedThreadPool(producerCount);
+
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+
+            for (int i = 0; i < producerCount; i++) {
+
+                int producer = i;
+
+                producers.add(executorService.submit(() -> {
+                    for (int batch = 0; batch < batchesPerProducer; batch++) {
+                        pipelinedService.writeDataPoints(
+                                Collections.singletonList(newDataPoint(producer + "-" + batch)));
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> producer : producers) {
+                producer.get(10, SECONDS);
+            }
+
+            pipelinedService.close();
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat(recordingService.ids.size(), equalTo(producerCount * batchesPerProducer));
+        assertThat(recordingService.closeCount, equalTo(1));
+
+        int[] nextBatches = new int[producerCount];
+
+        for (String id : recordingService.ids) {
+
+            int producer = Integer.parseInt(id.substring(0, id.indexOf('-')));
+
+            assertThat(id, equalTo(producer + "-" + nextBatches[producer]));
+            nextBatches[producer]++;
+        }
+    }
+
+    @Test
+    public void writeFailureShouldBeThrownToProducersAndOnClose() throws Exception {
+
+        IllegalStateException writeFailure = new IllegalStateException();
+        RecordingDataPointWritingService recordingService = new RecordingDataPointWritingService(writeFailure);
+        PipelinedDataPointWritingService pipelinedService = new PipelinedDataPointWritingService(recordingService, 2);
+
+        Exception producerFailure = null;
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+
+        // the failure is thrown by a call made once the writer thread has failed
+        while (producerFailure == null && System.nanoTime() < deadline) {
+            try {
+                pipelinedService.writeDataPoints(Collections.singletonList(newDataPoint("some-id")));
+            }
+            catch (Exception e) {
+                producerFailure = e;
+            }
+        }
+
+        assertThat(producerFailure, sameInstance(writeFailure));
+
+        Exception closeFailure = null;
+
+        try {
+            pipelinedService.close();
+        }
+        catch (Exception e) {
+            closeFailure = e;
+        }
+
+        assertThat(closeFailure, sameInstance(writeFailure));
+        assertThat(recordingService.closeCount, equalTo(1));
+    }
+}
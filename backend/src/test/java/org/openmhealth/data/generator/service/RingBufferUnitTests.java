@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class RingBufferUnitTests {
+
+    /**
+     * An entry identifying the producer that published it and the position of the entry among that producer's.
+     */
+    private static class Entry {
+
+        private int producer;
+        private long position;
+    }
+
+
+    @Test
+    public void capacityShouldBeRoundedUpToPowerOfTwo() {
+
+        assertThat(new RingBuffer<>(1, Entry::new).getCapacity(), equalTo(1));
+        assertThat(new RingBuffer<>(5, Entry::new).getCapacity(), equalTo(8));
+        assertThat(new RingBuffer<>(8, Entry::new).getCapacity(), equalTo(8));
+    }
+
+    @Test
+    public void waitForShouldReturnEntriesInOrderBeyondCapacity() throws Exception {
+
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(4, Entry::new);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            // the producer wraps around the buffer many times, so entries are reused once released
+            Future<?> producer = executorService.submit(() -> {
+                for (long position = 0; position < 10_000; position++) {
+
+                    long sequence = ringBuffer.claim();
+
+                    ringBuffer.get(sequence).position = position;
+                    ringBuffer.publish(sequence);
+                }
+
+                return null;
+            });
+
+            for (long sequence = 0; sequence < 10_000; sequence++) {
+
+                assertThat(ringBuffer.waitFor(sequence).position, equalTo(sequence));
+                ringBuffer.release(sequence);
+            }
+
+            producer.get(10, SECONDS);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waitForShouldKeepOrderOfEachProducer() throws Exception {
+
+        int producerCount = 4;
+        long entriesPerProducer = 10_000;
+
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(16, Entry::new);
+        ExecutorService executorService = Executors.newFixedThreadPool(producerCount);
+
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+
+            for (int i = 0; i < producerCount; i++) {
+
+                int producer = i;
+
+                producers.add(executorService.submit(() -> {
+                    for (long position = 0; position < entriesPerProducer; position++) {
+
+                        long sequence = ringBuffer.claim();
+                        Entry entry = ringBuffer.get(sequence);
+
+                        entry.producer = producer;
+                        entry.position = position;
+                        ringBuffer.publish(sequence);
+                    }
+
+                    return null;
+                }));
+            }
+
+            long[] nextPositions = new long[producerCount];
+
+            for (long sequence = 0; sequence < producerCount * entriesPerProducer; sequence++) {
+
+                Entry entry = ringBuffer.waitFor(sequence);
+
+                assertThat(entry.position, equalTo(nextPositions[entry.producer]));
+                nextPositions[entry.producer]++;
+
+                ringBuffer.release(sequence);
+            }
+
+            for (Future<?> producer : producers) {
+                producer.get(10, SECONDS);
+            }
+
+            for (long nextPosition : nextPositions) {
+                assertThat(nextPosition, equalTo(entriesPerProducer));
+            }
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void claimShouldWaitWhileBufferIsFull() throws Exception {
+
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(2, Entry::new);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            for (int i = 0; i < ringBuffer.getCapacity(); i++) {
+                ringBuffer.publish(ringBuffer.claim());
+            }
+
+            Future<Long> producer = executorService.submit(ringBuffer::claim);
+            boolean producerWaited = false;
+
+            try {
+                producer.get(200, MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                producerWaited = true;
+            }
+
+            assertThat(producerWaited, equalTo(true));
+
+            // releasing the first entry makes room for the waiting producer
+            ringBuffer.waitFor(0);
+            ringBuffer.release(0);
+
+            assertThat(producer.get(10, SECONDS), equalTo(2L));
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+}
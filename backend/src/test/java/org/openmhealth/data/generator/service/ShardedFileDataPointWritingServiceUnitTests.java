@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openmhealth.data.generator.configuration.JacksonConfiguration;
+import org.openmhealth.schema.domain.omh.*;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.openmhealth.schema.domain.omh.MassUnit.KILOGRAM;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+
+/**
+ * @author Emerson Farrugia
+ */
+public class ShardedFileDataPointWritingServiceUnitTests {
+
+    private static final OffsetDateTime EFFECTIVE_DATE_TIME = OffsetDateTime.parse("2016-01-01T12:00:00Z");
+
+    private ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private Path directory;
+
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("shards");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path path : directoryStream) {
+                Files.delete(path);
+            }
+        }
+
+        Files.delete(directory);
+    }
+
+    private ShardedFileDataPointWritingServiceImpl newService(boolean append, long maximumShardSizeInDataPoints,
+            long maximumShardSizeInMb) throws IOException {
+
+        DataPointTemplates templates = new DataPointTemplates();
+
+        setField(templates, "objectMapper", objectMapper);
+        setField(templates, "enabled", false);
+
+        ShardedFileDataPointWritingServiceImpl service = new ShardedFileDataPointWritingServiceImpl();
+
+        setField(service, "filename", directory.resolve("output.json").toString());
+        setField(service, "append", append);
+        setField(service, "bufferSizeInKb", 64);
+        setField(service, "syncIntervalInMb", 256);
+        setField(service, "compressionThreads", 1);
+        setField(service, "objectMapper", objectMapper);
+        setField(service, "dataPointTemplates", templates);
+        setField(service, "shardWriters", 1);
+        setField(service, "maximumShardSizeInDataPoints", maximumShardSizeInDataPoints);
+        setField(service, "maximumShardSizeInMb", maximumShardSizeInMb);
+
+        service.initializeShards();
+
+        return service;
+    }
+
+    private List<DataPoint<BodyWeight>> newDataPoints(int count) {
+
+        List<DataPoint<BodyWeight>> dataPoints = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+
+            OffsetDateTime effectiveDateTime = EFFECTIVE_DATE_TIME.plusHours(i);
+
+            BodyWeight bodyWeight = new BodyWeight.Builder(new MassUnitValue(KILOGRAM, 60))
+                    .setEffectiveTimeFrame(effectiveDateTime)
+                    .build();
+
+            DataPointAcquisitionProvenance acquisitionProvenance =
+                    new DataPointAcquisitionProvenance.Builder("generator")
+                            .setSourceCreationDateTime(effectiveDateTime)
+                            .build();
+
+            DataPointHeader header =
+                    new DataPointHeader.Builder("id-" + i, bodyWeight.getSchemaId(), effectiveDateTime)
+                            .setAcquisitionProvenance(acquisitionProvenance)
+                            .build();
+
+            dataPoints.add(new DataPoint<>(header, bodyWeight));
+        }
+
+        return dataPoints;
+    }
+
+    private JsonNode readManifest() throws IOException {
+        return objectMapper.readTree(directory.resolve("output-manifest.json").toFile()).path("shards");
+    }
+
+    @Test
+    public void writeDataPointsShouldRotateShardsByDataPointCount() throws Exception {
+
+        ShardedFileDataPointWritingServiceImpl service = newService(false, 3, 0);
+
+        assertThat(service.writeDataPoints(newDataPoints(7)), equalTo(7L));
+        service.close();
+
+        assertThat(Files.readAllLines(directory.resolve("output-00001.json")).size(), equalTo(3));
+        assertThat(Files.readAllLines(directory.resolve("output-00002.json")).size(), equalTo(3));
+        assertThat(Files.readAllLines(directory.resolve("output-00003.json")).size(), equalTo(1));
+        assertThat(Files.exists(directory.resolve("output-00004.json")), equalTo(false));
+    }
+
+    @Test
+    public void writeDataPointsShouldRotateShardsBySize() throws Exception {
+
+        ShardedFileDataPointWritingServiceImpl service = newService(false, 0, 1);
+
+        service.writeDataPoints(newDataPoints(10_000));
+        service.close();
+
+        JsonNode shards = readManifest();
+        long dataPointCount = 0;
+
+        assertThat(shards.size(), greaterThan(1));
+
+        for (int i = 0; i < shards.size(); i++) {
+
+            long sizeInBytes = Files.size(directory.resolve(shards.get(i).get("filename").asText()));
+
+            assertThat(shards.get(i).get("size_in_bytes").asLong(), equalTo(sizeInBytes));
+
+            // a shard is full once its size reaches a megabyte, which is checked before each data point is written
+            if (i < shards.size() - 1) {
+                assertThat(sizeInBytes, greaterThanOrEqualTo(1024L * 1024));
+                assertThat(sizeInBytes, lessThan(1024L * 1024 + 64 * 1024));
+            }
+
+            dataPointCount += shards.get(i).get("data_point_count").asLong();
+        }
+
+        assertThat(dataPointCount, equalTo(10_000L));
+    }
+
+    @Test
+    public void closeShouldWriteManifestOfShards() throws Exception {
+
+        ShardedFileDataPointWritingServiceImpl service = newService(false, 3, 0);
+
+        service.writeDataPoints(newDataPoints(7));
+        service.close();
+
+        JsonNode shards = readManifest();
+
+        assertThat(shards.size(), equalTo(3));
+
+        assertThat(shards.get(0).get("filename").asText(), equalTo("output-00001.json"));
+        assertThat(shards.get(0).get("data_point_count").asLong(), equalTo(3L));
+        assertThat(shards.get(0).get("size_in_bytes").asLong(),
+                equalTo(Files.size(directory.resolve("output-00001.json"))));
+        assertThat(shards.get(0).get("earliest_effective_date_time").asText(),
+                equalTo(EFFECTIVE_DATE_TIME.toString()));
+        assertThat(shards.get(0).get("latest_effective_date_time").asText(),
+                equalTo(EFFECTIVE_DATE_TIME.plusHours(2).toString()));
+
+        assertThat(shards.get(2).get("filename").asText(), equalTo("output-00003.json"));
+        assertThat(shards.get(2).get("data_point_count").asLong(), equalTo(1L));
+        assertThat(shards.get(2).get("earliest_effective_date_time").asText(),
+                equalTo(EFFECTIVE_DATE_TIME.plusHours(6).toString()));
+    }
+
+    @Test
+    public void closeShouldListShardsInIndexOrderBeyondPadding() throws Exception {
+
+        // shards are numbered after existing ones when appending
+        Files.createFile(directory.resolve("output-99998.json"));
+
+        ShardedFileDataPointWritingServiceImpl service = newService(true, 3, 0);
+
+        service.writeDataPoints(newDataPoints(7));
+        service.close();
+
+        JsonNode shards = readManifest();
+        List<String> filenames = new ArrayList<>();
+
+        for (JsonNode shard : shards) {
+            filenames.add(shard.get("filename").asText());
+        }
+
+        assertThat(filenames, contains("output-99999.json", "output-100000.json", "output-100001.json"));
+    }
+}
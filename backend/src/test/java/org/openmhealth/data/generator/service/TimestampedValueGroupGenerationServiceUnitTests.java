@@ -17,18 +17,30 @@
 package org.openmhealth.data.generator.service;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.openmhealth.data.generator.domain.BoundedRandomVariable;
 import org.openmhealth.data.generator.domain.BoundedRandomVariableTrend;
 import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
 import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
 import org.testng.annotations.Test;
 
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.openmhealth.data.generator.service.TimestampedValueGroupGenerationServiceImpl.NIGHT_TIME_END_HOUR;
+import static org.openmhealth.data.generator.service.TimestampedValueGroupGenerationServiceImpl.NIGHT_TIME_START_HOUR;
 
 
 /**
@@ -75,4 +87,211 @@ public class TimestampedValueGroupGenerationServiceUnitTests {
             assertThat(effectiveDateTime, lessThanOrEqualTo(endDateTime.toEpochSecond()));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void generateValueGroupsShouldGenerateLazily() {
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(OffsetDateTime.now().minusYears(100));
+        request.setEndDateTime(OffsetDateTime.now());
+        request.setMeanInterPointDuration(Duration.ofSeconds(1));
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0), 60d, 80d));
+
+        // a century of per-second value groups would exhaust the heap if they were generated eagerly
+        Iterable<TimestampedValueGroup> valueGroups = service.generateValueGroups(request);
+
+        assertThat(Iterables.getFirst(valueGroups, null), notNullValue());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void generateValueGroupBatchesShouldThrowExceptionOnSubSecondMeanInterPointDuration() {
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(OffsetDateTime.parse("2014-01-01T12:00:00Z"));
+        request.setEndDateTime(OffsetDateTime.parse("2014-01-02T12:00:00Z"));
+        request.setMeanInterPointDuration(Duration.ofMillis(500));
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0), 60d, 80d));
+
+        assertThat(request.isMeanInterPointDurationSupported(), equalTo(false));
+
+        service.generateValueGroupBatches(request);
+    }
+
+    @Test
+    public void generateValueGroupsShouldBeIndependentOfChunkThreadCountWhenSeeded() {
+
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2014-01-01T12:00:00Z");
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(startDateTime.plusYears(2));
+        request.setMeanInterPointDuration(Duration.ofHours(1));
+        request.setSeed(42L);
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0, 50d, 90d), 60d, 80d));
+
+        TimestampedValueGroupGenerationServiceImpl parallelService = new TimestampedValueGroupGenerationServiceImpl();
+        parallelService.setChunkThreads(4);
+
+        try {
+            // two years of hourly value groups span several chunks
+            List<TimestampedValueGroup> serialValueGroups = Lists.newArrayList(service.generateValueGroups(request));
+            List<TimestampedValueGroup> parallelValueGroups =
+                    Lists.newArrayList(parallelService.generateValueGroups(request));
+
+            assertThat(parallelValueGroups.size(), equalTo(serialValueGroups.size()));
+
+            for (int i = 0; i < serialValueGroups.size(); i++) {
+                assertThat(parallelValueGroups.get(i).getTimestamp(),
+                        equalTo(serialValueGroups.get(i).getTimestamp()));
+                assertThat(parallelValueGroups.get(i).getValues(), equalTo(serialValueGroups.get(i).getValues()));
+            }
+        }
+        finally {
+            parallelService.shutdown();
+        }
+    }
+
+    @Test
+    public void generateValueGroupBatchesShouldHaveColumnPerTrend() {
+
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2014-01-01T12:00:00Z");
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(startDateTime.plusYears(1));
+        request.setMeanInterPointDuration(Duration.ofHours(1));
+        request.setSeed(42L);
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0, 50d, 90d), 60d, 80d));
+        request.addTrend("bar", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0, 0d, 10d), 5d, 5d));
+
+        long previousEpochSecond = startDateTime.toEpochSecond();
+
+        for (TimestampedValueGroupBatch batch : service.generateValueGroupBatches(request)) {
+
+            assertThat(batch.getKeys(), containsInAnyOrder("foo", "bar"));
+
+            double[] fooValues = batch.getColumn("foo");
+            double[] barValues = batch.getColumn("bar");
+
+            for (int row = 0; row < batch.getSize(); row++) {
+
+                assertThat(batch.getEpochSecond(row), greaterThanOrEqualTo(previousEpochSecond));
+                assertThat(fooValues[row], greaterThanOrEqualTo(50d));
+                assertThat(barValues[row], lessThanOrEqualTo(10d));
+
+                previousEpochSecond = batch.getEpochSecond(row);
+            }
+        }
+
+        assertThat(previousEpochSecond, greaterThan(startDateTime.toEpochSecond()));
+    }
+
+    @Test
+    public void generateValueGroupBatchesShouldRoundToDecimalPlaces() {
+
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2014-01-01T12:00:00Z");
+
+        BoundedRandomVariableTrend barTrend =
+                new BoundedRandomVariableTrend(new BoundedRandomVariable(100.0, 0d, 1000d), 500d, 500d);
+        barTrend.setDecimalPlaces(0);
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(startDateTime.plusDays(30));
+        request.setMeanInterPointDuration(Duration.ofHours(1));
+        request.setSeed(42L);
+        request.setDecimalPlaces(1);
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0, 50d, 90d), 60d, 80d));
+        request.addTrend("bar", barTrend);
+
+        for (TimestampedValueGroupBatch batch : service.generateValueGroupBatches(request)) {
+
+            IntFunction<BigDecimal> fooValues = batch.getDecimalColumn("foo");
+            IntFunction<BigDecimal> barValues = batch.getDecimalColumn("bar");
+
+            for (int row = 0; row < batch.getSize(); row++) {
+
+                // the decimals have the scale of their trends, and match the values they're converted from
+                assertThat(fooValues.apply(row).scale(), equalTo(1));
+                assertThat(fooValues.apply(row).doubleValue(), equalTo(batch.getColumn("foo")[row]));
+                assertThat(barValues.apply(row).scale(), equalTo(0));
+                assertThat(barValues.apply(row).doubleValue(), equalTo(batch.getColumn("bar")[row]));
+            }
+        }
+    }
+
+    @Test
+    public void generateValueGroupBatchesShouldCoverLastSecondWhenEndIsLaterInSecond() {
+
+        // the whole seconds between the start and end date times fill one chunk exactly, and the end has a later
+        // nano-of-second than the start, so the second of the end date time can still have value groups
+        long chunkDurationInS = TimestampedValueGroupGenerationServiceImpl.MEAN_VALUE_GROUPS_PER_CHUNK;
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2014-01-01T12:00:00.250Z");
+        OffsetDateTime endDateTime = startDateTime.plusSeconds(chunkDurationInS).withNano(500_000_000);
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(endDateTime);
+        request.setMeanInterPointDuration(Duration.ofSeconds(1));
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0), 60d, 80d));
+
+        boolean lastSecondGenerated = false;
+
+        // a value group lands in the last second for most seeds
+        for (long seed = 0; seed < 20 && !lastSecondGenerated; seed++) {
+
+            request.setSeed(seed);
+
+            for (TimestampedValueGroupBatch batch : service.generateValueGroupBatches(request)) {
+                for (int row = 0; row < batch.getSize(); row++) {
+
+                    OffsetDateTime timestamp = batch.getTimestamp(row);
+
+                    assertThat(timestamp.isBefore(endDateTime), equalTo(true));
+
+                    if (timestamp.toEpochSecond() == endDateTime.toEpochSecond()) {
+                        lastSecondGenerated = true;
+                    }
+                }
+            }
+        }
+
+        assertThat(lastSecondGenerated, equalTo(true));
+    }
+
+    @Test
+    public void generateValueGroupBatchesShouldSuppressNightTimeMeasuresAtStartOffset() {
+
+        // the end date time has a later nano-of-second than the start, and a different offset
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2014-01-01T12:00:00.250+05:30");
+        OffsetDateTime endDateTime = OffsetDateTime.parse("2014-03-01T00:00:00.500Z");
+
+        MeasureGenerationRequest request = new MeasureGenerationRequest();
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(endDateTime);
+        request.setMeanInterPointDuration(Duration.ofMinutes(10));
+        request.setSuppressNightTimeMeasures(true);
+        request.setSeed(42L);
+        request.addTrend("foo", new BoundedRandomVariableTrend(new BoundedRandomVariable(1.0), 60d, 80d));
+
+        int valueGroupCount = 0;
+
+        for (TimestampedValueGroupBatch batch : service.generateValueGroupBatches(request)) {
+            for (int row = 0; row < batch.getSize(); row++) {
+
+                OffsetDateTime timestamp = batch.getTimestamp(row);
+
+                assertThat(timestamp.getOffset(), equalTo(startDateTime.getOffset()));
+                assertThat(timestamp.getNano(), equalTo(startDateTime.getNano()));
+                assertThat(timestamp.getHour(), greaterThanOrEqualTo(NIGHT_TIME_END_HOUR));
+                assertThat(timestamp.getHour(), lessThan(NIGHT_TIME_START_HOUR));
+                assertThat(timestamp.isAfter(startDateTime), equalTo(true));
+                assertThat(timestamp.isBefore(endDateTime), equalTo(true));
+
+                valueGroupCount++;
+            }
+        }
+
+        assertThat(valueGroupCount, greaterThan(0));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import org.openmhealth.data.generator.Application;
+import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.service.AbstractDataPointGeneratorImpl;
+import org.openmhealth.data.generator.service.DataPointGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Helpers shared by the benchmarks.
+ *
+ * @author Emerson Farrugia
+ */
+public final class BenchmarkSupport {
+
+    /**
+     * Plausible values of the value group keys of all the generators.
+     */
+    public static final Map<String, Double> SAMPLE_VALUES = ImmutableMap.<String, Double>builder()
+            .put("diastolic-in-mmhg", 80.0)
+            .put("distance-in-meters", 2500.0)
+            .put("duration-in-hours", 7.5)
+            .put("duration-in-seconds", 1800.0)
+            .put("glucose-in-mg-per-dl", 110.0)
+            .put("height-in-meters", 1.75)
+            .put("minutes", 30.0)
+            .put("percentage", 18.0)
+            .put("rate-in-beats-per-minute", 70.0)
+            .put("steps-per-minute", 90.0)
+            .put("systolic-in-mmhg", 120.0)
+            .put("temperature-in-c", 36.8)
+            .put("weight-in-kg", 70.0)
+            .build();
+
+    /**
+     * The system property that sets the directory files are written to, which should be on a RAM-backed file system
+     * so that benchmarks measure the generator and not the storage device.
+     */
+    public static final String OUTPUT_DIRECTORY_PROPERTY = "benchmark.output.directory";
+
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * @param properties properties that override the settings in application.yml, e.g. "output.destination=file"
+     * @return a started application context
+     */
+    public static ConfigurableApplicationContext newApplicationContext(String... properties) {
+
+        return new SpringApplicationBuilder(Application.class)
+                .web(false)
+                .properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * @param applicationContext an application context
+     * @param generatorName the name of a generator
+     * @return the generator with the specified name
+     */
+    public static AbstractDataPointGeneratorImpl<?> getGenerator(ConfigurableApplicationContext applicationContext,
+            String generatorName) {
+
+        for (DataPointGenerator<?> generator : applicationContext.getBeansOfType(DataPointGenerator.class).values()) {
+            if (generator.getName().equals(generatorName)) {
+                return (AbstractDataPointGeneratorImpl<?>) generator;
+            }
+        }
+
+        throw new IllegalArgumentException("The generator '" + generatorName + "' doesn't exist.");
+    }
+
+    /**
+     * @param generator a generator
+     * @param timestamp the timestamp of the value group
+     * @return a value group holding sample values of all the keys the generator supports
+     */
+    public static TimestampedValueGroup newValueGroup(DataPointGenerator<?> generator, OffsetDateTime timestamp) {
+
+        TimestampedValueGroup valueGroup = new TimestampedValueGroup();
+        valueGroup.setTimestamp(timestamp);
+
+        for (String key : generator.getSupportedValueGroupKeys()) {
+            checkState(SAMPLE_VALUES.containsKey(key), "There's no sample value of key '%s'.", key);
+            valueGroup.setValue(key, SAMPLE_VALUES.get(key));
+        }
+
+        return valueGroup;
+    }
+
+    /**
+     * @return a new, empty directory to write files to, by default on /dev/shm if it exists
+     */
+    public static Path newOutputDirectory() throws IOException {
+
+        String defaultParentDirectory =
+                Files.isWritable(Paths.get("/dev/shm")) ? "/dev/shm" : System.getProperty("java.io.tmpdir");
+
+        Path parentDirectory = Paths.get(System.getProperty(OUTPUT_DIRECTORY_PROPERTY, defaultParentDirectory));
+        checkArgument(Files.isDirectory(parentDirectory), "The directory '%s' doesn't exist.", parentDirectory);
+
+        return Files.createTempDirectory(parentDirectory, "data-generator-benchmark-");
+    }
+
+    /**
+     * @param directory a directory to delete, along with its contents
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+
+        List<Path> paths;
+
+        // children are deleted before their parents
+        try (Stream<Path> walkedPaths = Files.walk(directory)) {
+            paths = walkedPaths.sorted(Comparator.reverseOrder()).collect(toList());
+        }
+
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.openmhealth.data.generator.service.AbstractDataPointGeneratorImpl;
+import org.openmhealth.data.generator.service.DataPointTemplateWriter;
+import org.openmhealth.data.generator.service.DataPointTemplates;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.Measure;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.time.OffsetDateTime;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+/**
+ * Benchmarks the creation of the measures and data points of each generator, and their serialization to JSON using
+ * the object mapper, the object mapper of the schema SDK without hand-written serializers, and the template of the
+ * generator.
+ *
+ * @author Emerson Farrugia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+public class DataPointGeneratorBenchmark {
+
+    @Param({"ambient-temperature", "blood-glucose", "blood-pressure", "body-fat-percentage", "body-height",
+            "body-temperature", "body-weight", "heart-rate", "minutes-moderate-activity", "physical-activity",
+            "sleep-duration", "step-count"})
+    public String generatorName;
+
+    private ConfigurableApplicationContext applicationContext;
+    private AbstractDataPointGeneratorImpl<Measure> generator;
+    private ObjectMapper objectMapper;
+    private ObjectMapper schemaObjectMapper;
+    private RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+    private TimestampedValueGroup valueGroup;
+    private Measure measure;
+    private DataPoint<Measure> dataPoint;
+    private DataPointTemplateWriter templateWriter;
+    private ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void initializeGenerator() {
+
+        applicationContext = BenchmarkSupport.newApplicationContext();
+
+        generator = (AbstractDataPointGeneratorImpl<Measure>)
+                BenchmarkSupport.getGenerator(applicationContext, generatorName);
+        objectMapper = applicationContext.getBean(ObjectMapper.class);
+        schemaObjectMapper = org.openmhealth.schema.configuration.JacksonConfiguration.newObjectMapper();
+
+        valueGroup = BenchmarkSupport.newValueGroup(generator, OffsetDateTime.parse("2016-01-01T12:00:00Z"));
+        measure = generator.newMeasure(valueGroup);
+        dataPoint = generator.newDataPoint(measure, randomGenerator);
+
+        templateWriter = applicationContext.getBean(DataPointTemplates.class).newWriter();
+    }
+
+    @TearDown
+    public void closeApplicationContext() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Measure newMeasure() {
+        return generator.newMeasure(valueGroup);
+    }
+
+    @Benchmark
+    public DataPoint<Measure> newDataPoint() {
+        return generator.newDataPoint(measure, randomGenerator);
+    }
+
+    @Benchmark
+    public byte[] serializeMeasure() throws Exception {
+        return objectMapper.writeValueAsBytes(measure);
+    }
+
+    @Benchmark
+    public byte[] serializeDataPoint() throws Exception {
+        return objectMapper.writeValueAsBytes(dataPoint);
+    }
+
+    @Benchmark
+    public byte[] serializeDataPointUsingSchemaObjectMapper() throws Exception {
+        return schemaObjectMapper.writeValueAsBytes(dataPoint);
+    }
+
+    @Benchmark
+    public int writeDataPointUsingTemplate() throws Exception {
+
+        outputStream.reset();
+        templateWriter.writeLine(dataPoint, outputStream);
+
+        return outputStream.size();
+    }
+}
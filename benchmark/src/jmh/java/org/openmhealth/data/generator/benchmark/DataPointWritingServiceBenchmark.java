@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.openmhealth.data.generator.service.AbstractDataPointGeneratorImpl;
+import org.openmhealth.data.generator.service.DataPointWritingService;
+import org.openmhealth.schema.domain.omh.DataPoint;
+import org.openmhealth.schema.domain.omh.Measure;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+
+/**
+ * Benchmarks writing a batch of data points using each file-based writing service, with its files on a RAM-backed
+ * file system, as configured using the {@value BenchmarkSupport#OUTPUT_DIRECTORY_PROPERTY} system property. The
+ * service and its files are recreated on every iteration, so that the files don't grow without bound.
+ *
+ * @author Emerson Farrugia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+public class DataPointWritingServiceBenchmark {
+
+    public static final int BATCH_SIZE = 1000;
+
+    @Param({"file", "sharded-file", "bson"})
+    public String destination;
+
+    private List<DataPoint<?>> batch = new ArrayList<>(BATCH_SIZE);
+    private Path outputDirectory;
+    private ConfigurableApplicationContext applicationContext;
+    private DataPointWritingService writingService;
+
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void initializeBatch() {
+
+        ConfigurableApplicationContext generatorContext = BenchmarkSupport.newApplicationContext();
+
+        try {
+            AbstractDataPointGeneratorImpl<Measure> generator = (AbstractDataPointGeneratorImpl<Measure>)
+                    BenchmarkSupport.getGenerator(generatorContext, "blood-pressure");
+
+            RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+            OffsetDateTime timestamp = OffsetDateTime.parse("2016-01-01T12:00:00Z");
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Measure measure = generator.newMeasure(BenchmarkSupport.newValueGroup(generator, timestamp));
+                batch.add(generator.newDataPoint(measure, randomGenerator));
+                timestamp = timestamp.plusMinutes(10);
+            }
+        }
+        finally {
+            generatorContext.close();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void initializeWritingService() throws Exception {
+
+        outputDirectory = BenchmarkSupport.newOutputDirectory();
+
+        applicationContext = BenchmarkSupport.newApplicationContext(
+                "output.destination=" + destination,
+                "output.file.filename=" + outputDirectory.resolve("output.json"),
+                "output.file.append=false",
+                "output.bson.directory=" + outputDirectory.resolve("omh"));
+
+        writingService = applicationContext.getBean(DataPointWritingService.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutput() throws Exception {
+
+        writingService.close();
+        applicationContext.close();
+
+        BenchmarkSupport.deleteDirectory(outputDirectory);
+    }
+
+    @Benchmark
+    public long writeDataPoints() throws Exception {
+        return writingService.writeDataPoints(batch);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+import org.openmhealth.data.generator.serializer.IsoOffsetDateTimeFormatter;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+/**
+ * Benchmarks the formatting of date times using the formatter of the serializers and templates, and using the
+ * formatter of the Java time module. The date times are a few minutes apart, like those of a generated time series.
+ *
+ * @author Emerson Farrugia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+public class DateTimeFormatterBenchmark {
+
+    private OffsetDateTime[] dateTimes = new OffsetDateTime[4096];
+    private int index = 0;
+    private IsoOffsetDateTimeFormatter formatter = new IsoOffsetDateTimeFormatter();
+
+
+    @Setup
+    public void initializeDateTimes() {
+
+        RandomGenerator randomGenerator = new SplitMix64RandomGenerator(42);
+        OffsetDateTime dateTime = OffsetDateTime.of(2016, 1, 1, 0, 0, 0, 250_000_000, ZoneOffset.ofHours(-5));
+
+        for (int i = 0; i < dateTimes.length; i++) {
+            dateTime = dateTime.plusSeconds(randomGenerator.nextInt(600));
+            dateTimes[i] = dateTime;
+        }
+    }
+
+    private OffsetDateTime nextDateTime() {
+        return dateTimes[index++ & (dateTimes.length - 1)];
+    }
+
+    @Benchmark
+    public int formatDateTime() {
+        return formatter.format(nextDateTime());
+    }
+
+    @Benchmark
+    public String formatDateTimeUsingDateTimeFormatter() {
+        return ISO_OFFSET_DATE_TIME.format(nextDateTime());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openmhealth.data.generator.domain.BoundedRandomVariable;
+import org.openmhealth.data.generator.domain.BoundedRandomVariableTrend;
+import org.openmhealth.data.generator.random.BlockVariateGenerator;
+import org.openmhealth.data.generator.random.SplitMix64RandomGenerator;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+/**
+ * Benchmarks the sampling of bounded random variables and trends. The position of the mean relative to the bounds
+ * determines how a value is sampled, so each position is benchmarked separately.
+ *
+ * @author Emerson Farrugia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+public class RandomVariableBenchmark {
+
+    /**
+     * The position of the mean, which is either unbounded, centred between the bounds, near a bound, or past a bound.
+     */
+    @Param({"unbounded", "centred", "near-bound", "past-bound"})
+    public String meanPosition;
+
+    private BoundedRandomVariable variable;
+    private BoundedRandomVariableTrend trend;
+    private double mean;
+    private double fraction = 0;
+    private RandomGenerator randomGenerator;
+
+
+    @Setup
+    public void initializeVariable() {
+
+        randomGenerator = new BlockVariateGenerator(new SplitMix64RandomGenerator(42));
+
+        switch (meanPosition) {
+            case "unbounded":
+                variable = new BoundedRandomVariable(1.0);
+                mean = 0;
+                break;
+            case "centred":
+                variable = new BoundedRandomVariable(1.0, -3.0, 3.0);
+                mean = 0;
+                break;
+            case "near-bound":
+                variable = new BoundedRandomVariable(1.0, -3.0, 3.0);
+                mean = 2.5;
+                break;
+            case "past-bound":
+                variable = new BoundedRandomVariable(1.0, -3.0, 3.0);
+                mean = 5;
+                break;
+            default:
+                throw new IllegalArgumentException("The mean position '" + meanPosition + "' isn't supported.");
+        }
+
+        // the trend moves the mean from the centre to the configured position
+        trend = new BoundedRandomVariableTrend(variable, 0.0, mean);
+    }
+
+    @Benchmark
+    public double nextValue() {
+        return variable.nextValue(mean, randomGenerator);
+    }
+
+    @Benchmark
+    public double nextTrendValue() {
+
+        fraction = fraction >= 1 ? 0 : fraction + 0.001;
+
+        return trend.nextValue(fraction, randomGenerator);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Open mHealth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openmhealth.data.generator.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmhealth.data.generator.domain.BoundedRandomVariable;
+import org.openmhealth.data.generator.domain.BoundedRandomVariableTrend;
+import org.openmhealth.data.generator.domain.MeasureGenerationRequest;
+import org.openmhealth.data.generator.domain.TimestampedValueGroup;
+import org.openmhealth.data.generator.domain.TimestampedValueGroupBatch;
+import org.openmhealth.data.generator.service.TimestampedValueGroupGenerationService;
+import org.openmhealth.data.generator.service.TimestampedValueGroupGenerationServiceImpl;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+
+/**
+ * Benchmarks the generation of the value groups of a 30-day request with two trends, at different densities.
+ *
+ * @author Emerson Farrugia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+public class ValueGroupGenerationBenchmark {
+
+    @Param({"PT1M", "PT1H", "PT24H"})
+    public String meanInterPointDuration;
+
+    private TimestampedValueGroupGenerationService service = new TimestampedValueGroupGenerationServiceImpl();
+    private MeasureGenerationRequest request;
+
+
+    @Setup
+    public void initializeRequest() {
+
+        OffsetDateTime startDateTime = OffsetDateTime.parse("2016-01-01T00:00:00Z");
+
+        request = new MeasureGenerationRequest();
+        request.setGeneratorName("blood-pressure");
+        request.setStartDateTime(startDateTime);
+        request.setEndDateTime(startDateTime.plusDays(30));
+        request.setMeanInterPointDuration(Duration.parse(meanInterPointDuration));
+        request.setSuppressNightTimeMeasures(true);
+        request.setSeed(42L);
+        request.addTrend("systolic-in-mmhg",
+                new BoundedRandomVariableTrend(new BoundedRandomVariable(3.0, 100.0, 140.0), 110.0, 125.0));
+        request.addTrend("diastolic-in-mmhg",
+                new BoundedRandomVariableTrend(new BoundedRandomVariable(3.0, 60.0, 90.0), 70.0, 80.0));
+    }
+
+    @TearDown
+    public void shutdownService() {
+        ((TimestampedValueGroupGenerationServiceImpl) service).shutdown();
+    }
+
+    @Benchmark
+    public long generateValueGroupBatches() {
+
+        long valueGroupCount = 0;
+
+        for (TimestampedValueGroupBatch batch : service.generateValueGroupBatches(request)) {
+            valueGroupCount += batch.getSize();
+        }
+
+        return valueGroupCount;
+    }
+
+    @Benchmark
+    public void generateValueGroups(Blackhole blackhole) {
+
+        for (TimestampedValueGroup valueGroup : service.generateValueGroups(request)) {
+            blackhole.consume(valueGroup);
+        }
+    }
+}